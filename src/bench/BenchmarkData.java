@@ -0,0 +1,99 @@
+package bench;
+
+import engine.Graph;
+import engine.GraphGenerators;
+
+import java.util.Random;
+
+/**
+ * This class provides the seeded inputs shared by the benchmarks, so that
+ * every run of a benchmark measures exactly the same graph.
+ *
+ */
+final class BenchmarkData {
+    static final long SEED = 150L;
+
+    private BenchmarkData() {
+        // This class should not be instantiated
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Builds a graph from one of the synthetic families, plus a path
+     * through every node so that everything is reachable from node 0.
+     *
+     * @param family    "uniform" (Erdős-Rényi), "rmat", "ba"
+     *                  (Barabási-Albert) or "grid"
+     * @param numNodes  the number of nodes, with IDs 0 to numNodes - 1;
+     *                  rmat rounds it up to a power of two and grid to a
+     *                  square
+     * @param degree    the average number of out-edges per node
+     * @param seed      the random seed
+     * @return          the graph, with integer weights in [1, 100]
+     */
+    static Graph graph(String family, int numNodes, int degree, long seed) {
+        Graph g = new Graph();
+        switch (family) {
+            case "uniform":
+                GraphGenerators.erdosRenyi(numNodes,
+                        (double) degree / (numNodes - 1), seed, g);
+                break;
+            case "rmat":
+                int scale = 32 - Integer.numberOfLeadingZeros(numNodes - 1);
+                numNodes = 1 << scale;
+                GraphGenerators.rmat(scale, (long) numNodes * degree, seed, g);
+                break;
+            case "ba":
+                GraphGenerators.barabasiAlbert(numNodes, degree, seed, g);
+                break;
+            case "grid":
+                int side = (int) Math.ceil(Math.sqrt(numNodes));
+                numNodes = side * side;
+                GraphGenerators.grid(side, side, seed, g);
+                break;
+            default:
+                throw new IllegalArgumentException(family);
+        }
+        for (int v = 0; v + 1 < numNodes; v++) {
+            g.addEdge(v, v + 1, 100);
+        }
+        return g;
+    }
+
+    /**
+     * Builds a uniform random graph.
+     * @see #graph(String, int, int, long)
+     *
+     * @param numNodes  the number of nodes, with IDs 0 to numNodes - 1
+     * @param degree    the average number of random out-edges per node
+     * @param seed      the random seed
+     * @return          the graph, with integer weights in [1, 100]
+     */
+    static Graph randomGraph(int numNodes, int degree, long seed) {
+        return graph("uniform", numNodes, degree, seed);
+    }
+
+    /**
+     * Builds a random DAG: every edge goes from a lower ID to a higher one.
+     *
+     * @param numNodes  the number of nodes, with IDs 0 to numNodes - 1
+     * @param degree    the average number of out-edges per node
+     * @param seed      the random seed
+     * @return          the DAG
+     */
+    static Graph randomDag(int numNodes, int degree, long seed) {
+        Random rand = new Random(seed);
+        Graph g = new Graph();
+        for (int v = 0; v + 1 < numNodes; v++) {
+            g.addEdge(v, v + 1, 1);
+        }
+        for (long i = 0; i < (long) numNodes * degree; i++) {
+            int u = rand.nextInt(numNodes);
+            int v = rand.nextInt(numNodes);
+            if (u != v) {
+                g.addEdge(Math.min(u, v), Math.max(u, v), 1);
+            }
+        }
+        return g;
+    }
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite from the project root. With no arguments every
+ * benchmark runs; otherwise each argument is a regular expression of the
+ * benchmarks to include, e.g. "GraphToolkitBenchmark.getSCC".
+ *
+ * <p>
+ *     Results are also written to jmh-result.json, so runs before and
+ *     after a change can be compared.
+ *
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+        // This class should not be instantiated
+        throw new IllegalStateException();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if (args.length == 0) {
+            builder.include("bench\\..*");
+        }
+        for (String pattern : args) {
+            builder.include(pattern);
+        }
+        Options options = builder
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import engine.DistanceMatrix;
+import engine.Graph;
+import engine.GraphToolkit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the GraphToolkit operations that are quadratic or worse
+ * in the number of nodes: all-pairs shortest paths, betweenness
+ * centrality and the eigendecomposition PageRank. These get smaller graphs
+ * than GraphToolkitBenchmark.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DenseGraphBenchmark {
+    @Param({"100", "300", "1000"})
+    public int numNodes;
+
+    @Param({"4"})
+    public int degree;
+
+    private Graph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = BenchmarkData.randomGraph(numNodes, degree, BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public DistanceMatrix getAllPairsShortestPath() {
+        return GraphToolkit.getAllPairsShortestPath(graph);
+    }
+
+    @Benchmark
+    public Map<Integer, Double> getBetweennessCentrality() {
+        return GraphToolkit.getBetweennessCentrality(graph);
+    }
+
+    /**
+     * The eigendecomposition behind getPageRank(Graph) is cubic in the
+     * number of nodes, so it gets its own, smaller sizes.
+     */
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @State(Scope.Benchmark)
+    public static class EigenPageRank {
+        @Param({"50", "100", "200"})
+        public int numNodes;
+
+        private Graph graph;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            graph = BenchmarkData.randomGraph(numNodes, 4, BenchmarkData.SEED);
+        }
+
+        @Benchmark
+        public Map<Integer, Double> getPageRank() {
+            return GraphToolkit.getPageRank(graph);
+        }
+    }
+}
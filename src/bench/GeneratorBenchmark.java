@@ -0,0 +1,69 @@
+package bench;
+
+import engine.GraphGenerators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the generators themselves, from 10^3 to 10^8 edges.
+ * The edges go to a Blackhole rather than a Graph, so this measures only
+ * the generation and shows how far each family can stream.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+    @Param({"1000", "100000", "10000000", "100000000"})
+    public long numEdges;
+
+    @Benchmark
+    public void rmat(Blackhole bh) {
+        int scale = Math.max(1, 63 - Long.numberOfLeadingZeros(numEdges / 16));
+        GraphGenerators.rmat(scale, numEdges, BenchmarkData.SEED,
+                (src, tgt, weight) -> bh.consume(src ^ tgt));
+    }
+
+    @Benchmark
+    public void erdosRenyi(Blackhole bh) {
+        int numNodes = (int) Math.max(2, numEdges / 16);
+        GraphGenerators.erdosRenyi(numNodes,
+                Math.min(1.0, (double) numEdges / numNodes / (numNodes - 1)),
+                BenchmarkData.SEED, (src, tgt, weight) -> bh.consume(src ^ tgt));
+    }
+
+    @Benchmark
+    public void barabasiAlbert(Blackhole bh) {
+        GraphGenerators.barabasiAlbert((int) (numEdges / 8) + 8, 8,
+                BenchmarkData.SEED, (src, tgt, weight) -> bh.consume(src ^ tgt));
+    }
+
+    @Benchmark
+    public void grid(Blackhole bh) {
+        int side = (int) Math.ceil(Math.sqrt(numEdges / 4.0));
+        GraphGenerators.grid(side, side, BenchmarkData.SEED,
+                (src, tgt, weight) -> bh.consume(src ^ tgt));
+    }
+
+    @Benchmark
+    public void bipartiteRatings(Blackhole bh) {
+        int numUsers = (int) Math.max(1, numEdges / 100);
+        GraphGenerators.bipartiteRatings(numUsers, numUsers / 2 + 1,
+                numEdges, 1.0, BenchmarkData.SEED,
+                (src, tgt, weight) -> bh.consume(src ^ tgt));
+    }
+}
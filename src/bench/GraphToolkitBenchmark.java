@@ -0,0 +1,92 @@
+package bench;
+
+import engine.Graph;
+import engine.GraphToolkit;
+import engine.PageRankOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the GraphToolkit operations that scale to large graphs,
+ * over seeded synthetic graphs of every family in GraphGenerators, at
+ * increasing sizes.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GraphToolkitBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int numNodes;
+
+    @Param({"4"})
+    public int degree;
+
+    @Param({"uniform", "rmat", "ba", "grid"})
+    public String family;
+
+    private Graph graph;
+    private Graph dag;
+    private int last;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = BenchmarkData.graph(family, numNodes, degree,
+                BenchmarkData.SEED);
+        dag = BenchmarkData.randomDag(numNodes, degree, BenchmarkData.SEED);
+        last = graph.getSize() - 1;
+    }
+
+    @Benchmark
+    public List<Integer> bfs() {
+        return GraphToolkit.bfs(graph, 0, last, false);
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> dfsTree() {
+        return GraphToolkit.dfsTree(graph, 0);
+    }
+
+    @Benchmark
+    public List<Integer> topSort() {
+        return GraphToolkit.topSort(dag);
+    }
+
+    @Benchmark
+    public Set<Set<Integer>> getSCC() {
+        return GraphToolkit.getSCC(graph);
+    }
+
+    @Benchmark
+    public Map<Integer, Double> getSingleSourceShortestPath() {
+        return GraphToolkit.getSingleSourceShortestPath(graph, 0);
+    }
+
+    @Benchmark
+    public int getMaxFlow() {
+        return GraphToolkit.getMaxFlow(graph, 0, last);
+    }
+
+    @Benchmark
+    public Map<Integer, Double> getPageRankBlock() {
+        return GraphToolkit.getPageRank(graph, new PageRankOptions());
+    }
+}
@@ -0,0 +1,113 @@
+package bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A closed-loop load generator for RecommendationServer. A number of
+ * workers each send a request, wait for the answer and send the next one,
+ * for a fixed time. Users are drawn uniformly from 1 to numUsers, so with
+ * few users many requests are identical and get coalesced by the server.
+ *
+ * <p>
+ *     Usage: LoadGenerator [url] [workers] [seconds] [numUsers] [path]
+ *     with defaults http://localhost:8080, 16, 10, 943 and /recommend.
+ *     The report gives throughput, error count and latency percentiles.
+ *
+ */
+public final class LoadGenerator {
+    private LoadGenerator() {
+        // This class should not be instantiated
+        throw new IllegalStateException();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int numUsers = args.length > 3 ? Integer.parseInt(args[3]) : 943;
+        String path = args.length > 4 ? args[4] : "/recommend";
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[workers][];
+        int[] counts = new int[workers];
+
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            final int worker = w;
+            Thread t = new Thread(() -> {
+                SplittableRandom rand = new SplittableRandom(
+                        BenchmarkData.SEED + worker);
+                long[] mine = new long[1024];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    int user = 1 + rand.nextInt(numUsers);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(
+                            url + path + "?user=" + user)).GET().build();
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request,
+                                HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (n == mine.length) {
+                        mine = Arrays.copyOf(mine, 2 * n);
+                    }
+                    mine[n++] = System.nanoTime() - t0;
+                }
+                latencies[worker] = mine;
+                counts[worker] = n;
+            });
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int k = 0;
+        for (int w = 0; w < workers; w++) {
+            System.arraycopy(latencies[w], 0, all, k, counts[w]);
+            k += counts[w];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%d requests in %.1f s: %.1f req/s, %d errors%n",
+                total, elapsed / 1e9, total * 1e9 / elapsed, errors.get());
+        System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  "
+                + "p99.9 %.2f  max %.2f%n", percentile(all, 0.50),
+                percentile(all, 0.90), percentile(all, 0.99),
+                percentile(all, 0.999), percentile(all, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import engine.DataReader;
+import engine.Graph;
+import engine.Recommender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for loading the MovieLens ml-100k data and for collaborative
+ * filtering over it. Run from the project root, so that the data/ paths
+ * resolve.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommenderBenchmark {
+    @Param({"1", "2", "450"})
+    public int userID;
+
+    @Param({"10", "75"})
+    public int numUsers;
+
+    private Recommender recommender;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        recommender = new Recommender(DataReader.readMovieLensData());
+    }
+
+    @Benchmark
+    public List<Integer> collabFilterPearson() {
+        return recommender.collabFilter(userID,
+                recommender.getPearsonScores(userID), numUsers, 5);
+    }
+
+    @Benchmark
+    public List<Integer> collabFilterJaccard() {
+        return recommender.collabFilter(userID,
+                recommender.getJaccardScores(userID), numUsers, 5);
+    }
+
+    /**
+     * Loading does not depend on the parameters, so it runs in its own
+     * state-free class to avoid repeating it for every combination.
+     */
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public static class Loading {
+        @Benchmark
+        public Graph readMovieLensData() {
+            return DataReader.readMovieLensData();
+        }
+
+        @Benchmark
+        public Graph readMovieLensTestData() {
+            return DataReader.readMovieLensTestData("data/ml-100k/u1.base");
+        }
+    }
+}
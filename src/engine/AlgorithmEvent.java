@@ -0,0 +1,112 @@
+package engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class provides the Java Flight Recorder event emitted for every
+ * GraphToolkit algorithm run, so that recordings can tie GC pauses and
+ * allocation spikes to the run that caused them. Its duration is the
+ * duration of the run.
+ *
+ * <p>
+ *     While JFR is not recording the event, begin and end do nothing
+ *     measurable: the size of the graph is only computed for events that
+ *     will be committed.
+ *
+ * <p>
+ *     Algorithms that are handed the event may fill in iterations, and
+ *     edgesTouched when they count their work more closely than whole
+ *     passes; end keeps a count that has been filled in.
+ *
+ */
+@Name("engine.Algorithm")
+@Label("Graph Algorithm")
+@Category({"Recommendation Engine", "Graph Toolkit"})
+@Description("A run of a GraphToolkit algorithm")
+@StackTrace(false)
+final class AlgorithmEvent extends Event {
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Nodes")
+    int nodes;
+
+    @Label("Edges")
+    long edges;
+
+    @Label("Edges Touched")
+    @Description("Edge scans, or a bound on them: the edges times the "
+            + "passes the algorithm makes over them")
+    long edgesTouched;
+
+    @Label("Iterations")
+    @Description("The iterations of an iterative solver; 0 otherwise")
+    int iterations;
+
+    /**
+     * Starts timing an algorithm run.
+     *
+     * @param algorithm  the name of the GraphToolkit method
+     * @return           the event
+     */
+    static AlgorithmEvent begin(String algorithm) {
+        AlgorithmEvent event = new AlgorithmEvent();
+        event.algorithm = algorithm;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the run and commits the event, if it is being recorded.
+     *
+     * @param g       the Graph the algorithm ran on, or null if unknown
+     * @param passes  the number of passes over the edges, or the number of
+     *                iterations for an iterative solver; ignored if the
+     *                algorithm set edgesTouched
+     */
+    void end(Graph g, long passes) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        if (g != null) {
+            nodes = g.getSize();
+            for (Node node : g.getAllNodes()) {
+                edges += node.getOutDegree();
+            }
+        }
+        if (edgesTouched == 0) {
+            edgesTouched = passes * edges;
+        }
+        commit();
+    }
+
+    /**
+     * Ends a run on a GraphStorage and commits the event, if it is being
+     * recorded.
+     *
+     * @param g       the storage the algorithm ran on, or null if unknown
+     * @param passes  the number of passes over the edges, or the number of
+     *                iterations for an iterative solver; ignored if the
+     *                algorithm set edgesTouched
+     */
+    void end(GraphStorage g, long passes) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        if (g != null) {
+            nodes = g.numNodes();
+            edges = g.numEdges();
+        }
+        if (edgesTouched == 0) {
+            edgesTouched = passes * edges;
+        }
+        commit();
+    }
+}
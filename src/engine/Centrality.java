@@ -8,16 +8,19 @@ import org.la4j.vector.functor.VectorAccumulator;
 import org.la4j.vector.functor.VectorFunction;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.stream.IntStream;
 
 /**
  * This class provides implementations of the various centrality measures
- * of the Graph Toolkit, including betweeness cetnrality and PageRank.
+ * of the Graph Toolkit, including betweeness cetnrality, PageRank, and
+ * closeness and harmonic centrality.
  *
  */
 class Centrality {
@@ -180,6 +183,422 @@ class Centrality {
         return ranks;
     }
 
+    /**
+     * Finds PageRank iteratively on every core, for graphs too large for
+     * the eigendecomposition in pageRank(Graph).
+     *
+     * <p>
+     *     This solves the linear PageRank system
+     *
+     * <p>
+     *     x = (1 - DF) / n + DF * A * x
+     *
+     * <p>
+     *     and normalizes x to sum to 1. On graphs without sinks this is the
+     *     same vector as pageRank(Graph). Each iteration pulls along the
+     *     in-edges of the transpose, so every node is written by exactly one
+     *     thread. The nodes are split into contiguous blocks with about the
+     *     same number of in-edges, and the blocks run in parallel.
+     *
+     * <p>
+     *     In Gauss-Seidel mode a node also uses the new scores of the nodes
+     *     before it in its own block. Across blocks the old scores are
+     *     still used, so the result does not depend on thread timing. With
+     *     an extrapolation period k, every k-th iterate is replaced by the
+     *     Aitken extrapolation of the last three iterates, which removes the
+     *     dominant error component of a linearly converging sequence.
+     *
+     * @param g        the graph, in any storage
+     * @param options  the solver settings
+     * @return         the rank of every node, summing to 1
+     */
+    static double[] blockPageRank(GraphStorage g,
+                                  final PageRankOptions options) {
+        if (g.numNodes() == 0) {
+            return new double[0];
+        }
+        try (GraphStorage in = g.transpose()) {
+            return blockPageRank(g, in, options);
+        }
+    }
+
+    /**
+     * Runs blockPageRank(GraphStorage, PageRankOptions) once the transpose
+     * has been built.
+     *
+     * @param g        the graph
+     * @param in       its transpose
+     * @param options  the solver settings
+     * @return         the rank of every node, summing to 1
+     */
+    private static double[] blockPageRank(GraphStorage g,
+                                          final GraphStorage in,
+                                          final PageRankOptions options) {
+        final int n = g.numNodes();
+        final double df = options.getDampingFactor();
+        final double teleport = (1 - df) / n;
+        final boolean gaussSeidel = options.isGaussSeidel();
+        final int period = options.getExtrapolationPeriod();
+        final PageRankListener listener = options.getListener();
+        final int[] bounds = balanceBlocks(in, options.getNumBlocks());
+        final int numBlocks = bounds.length - 1;
+        final ThreadLocal<NeighborCursor> cursors =
+                ThreadLocal.withInitial(in::cursor);
+
+        final double[] invDegree = new double[n];
+        for (int u = 0; u < n; u++) {
+            int degree = g.getOutDegree(u);
+            invDegree[u] = degree == 0 ? 0.0 : 1.0 / degree;
+        }
+
+        double[] x = new double[n];
+        Arrays.fill(x, 1.0 / n);
+        double[] next = new double[n];
+        final double[] contrib = new double[n];
+        final double[] blockResidual = new double[numBlocks];
+        double[] older = period > 0 ? new double[n] : null;
+        double[] previous = period > 0 ? new double[n] : null;
+
+        long start = System.nanoTime();
+        for (int iteration = 1; iteration <= options.getMaxIterations();
+             iteration++) {
+            long iterationStart = System.nanoTime();
+            final double[] cur = x;
+            final double[] nxt = next;
+            IntStream.range(0, numBlocks).parallel().forEach(b -> {
+                for (int u = bounds[b]; u < bounds[b + 1]; u++) {
+                    contrib[u] = cur[u] * invDegree[u];
+                }
+            });
+            IntStream.range(0, numBlocks).parallel().forEach(b -> {
+                int lo = bounds[b];
+                NeighborCursor cursor = cursors.get();
+                double residual = 0.0;
+                for (int v = lo; v < bounds[b + 1]; v++) {
+                    double sum = 0.0;
+                    cursor.reset(v);
+                    while (cursor.next()) {
+                        int u = cursor.target();
+                        sum += gaussSeidel && u >= lo && u < v
+                                ? nxt[u] * invDegree[u] : contrib[u];
+                    }
+                    nxt[v] = teleport + df * sum;
+                    residual += Math.abs(nxt[v] - cur[v]);
+                }
+                blockResidual[b] = residual;
+            });
+            double residual = 0.0;
+            for (double r : blockResidual) {
+                residual += r;
+            }
+
+            if (period > 0) {
+                int phase = iteration % period;
+                if (phase == 0) {
+                    aitken(older, previous, next);
+                } else if (phase == period - 2) {
+                    System.arraycopy(next, 0, older, 0, n);
+                } else if (phase == period - 1) {
+                    System.arraycopy(next, 0, previous, 0, n);
+                }
+            }
+
+            double[] tmp = x;
+            x = next;
+            next = tmp;
+
+            if (listener != null) {
+                long now = System.nanoTime();
+                double seconds = Math.max(now - iterationStart, 1) / 1e9;
+                listener.onIteration(iteration, residual, now - start,
+                        in.numEdges() / seconds);
+            }
+            if (residual < options.getTolerance()) {
+                break;
+            }
+        }
+
+        double sum = 0.0;
+        for (double value : x) {
+            sum += value;
+        }
+        for (int v = 0; v < n; v++) {
+            x[v] /= sum;
+        }
+        return x;
+    }
+
+    /**
+     * Splits the nodes into contiguous blocks with about the same number of
+     * in-edges, counting every node as one extra edge.
+     *
+     * @param in         the transpose of the graph
+     * @param numBlocks  the number of blocks wanted
+     * @return           the first node of every block, followed by n
+     */
+    private static int[] balanceBlocks(GraphStorage in, int numBlocks) {
+        int n = in.numNodes();
+        numBlocks = Math.min(numBlocks, n);
+        long total = in.numEdges() + n;
+        int[] bounds = new int[numBlocks + 1];
+        int v = 0;
+        // The in-edges and nodes before v
+        long before = 0;
+        for (int b = 1; b < numBlocks; b++) {
+            long goal = total * b / numBlocks;
+            while (v < n && before < goal) {
+                before += in.getOutDegree(v) + 1;
+                v++;
+            }
+            bounds[b] = Math.max(v, bounds[b - 1]);
+        }
+        bounds[numBlocks] = n;
+        return bounds;
+    }
+
+    /**
+     * Replaces x2 with the componentwise Aitken extrapolation of x0, x1, x2.
+     * Components whose second difference vanishes, or whose extrapolated
+     * value would be negative, are left alone.
+     *
+     * @param x0  the iterate two steps back
+     * @param x1  the previous iterate
+     * @param x2  the current iterate, updated in place
+     */
+    private static void aitken(double[] x0, double[] x1, double[] x2) {
+        for (int v = 0; v < x2.length; v++) {
+            double d1 = x2[v] - x1[v];
+            double d2 = x2[v] - 2 * x1[v] + x0[v];
+            if (Math.abs(d2) > 1e-300) {
+                double value = x2[v] - d1 * d1 / d2;
+                if (value >= 0) {
+                    x2[v] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the exact closeness and harmonic centrality of every node, with
+     * one BFS per node along the out-edges, run in parallel.
+     *
+     * <p>
+     *     Distances count edges and ignore weights. For a node that reaches
+     *     r nodes, itself included, at a total distance of D, the
+     *     closeness is (r - 1) / D, or 0 if it reaches nothing. The
+     *     harmonic centrality is the sum of 1 / d over every other node it
+     *     reaches. Both stay meaningful on disconnected graphs.
+     *
+     * @param g  the graph, in any storage
+     * @return   {closeness, harmonic}, indexed by node
+     */
+    static double[][] distanceCentrality(final GraphStorage g) {
+        final int n = g.numNodes();
+        final double[] closeness = new double[n];
+        final double[] harmonic = new double[n];
+        // Per thread: the BFS queue, and the source that last saw each node
+        final ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> {
+            int[] seen = new int[n];
+            Arrays.fill(seen, -1);
+            return new int[][]{new int[n], seen};
+        });
+
+        final ThreadLocal<NeighborCursor> cursors =
+                ThreadLocal.withInitial(g::cursor);
+
+        IntStream.range(0, n).parallel().forEach(src -> {
+            int[][] arrays = scratch.get();
+            int[] queue = arrays[0];
+            int[] seen = arrays[1];
+            NeighborCursor cursor = cursors.get();
+            seen[src] = src;
+            queue[0] = src;
+            int head = 0;
+            int tail = 1;
+            int depth = 0;
+            long total = 0;
+            double inverse = 0.0;
+            while (head < tail) {
+                // One BFS level at a time, so depth needs no array
+                int end = tail;
+                depth++;
+                for (; head < end; head++) {
+                    cursor.reset(queue[head]);
+                    while (cursor.next()) {
+                        int w = cursor.target();
+                        if (seen[w] != src) {
+                            seen[w] = src;
+                            queue[tail++] = w;
+                        }
+                    }
+                }
+                total += (long) depth * (tail - end);
+                inverse += (double) (tail - end) / depth;
+            }
+            closeness[src] = total == 0 ? 0.0 : (double) (tail - 1) / total;
+            harmonic[src] = inverse;
+        });
+        return new double[][]{closeness, harmonic};
+    }
+
+    /**
+     * Estimates closeness and harmonic centrality with HyperBall.
+     *
+     * <p>
+     *     Every node keeps a HyperLogLog counter of the ball of nodes within
+     *     t hops along its out-edges. The ball for t + 1 is the union of the
+     *     node's own ball and its out-neighbors' balls for t, and a
+     *     HyperLogLog union is a register-wise maximum. So one parallel pass
+     *     over the edge arrays advances every ball by one hop. Only nodes
+     *     with an out-neighbor whose counter changed in the last pass are
+     *     recomputed. The growth of the estimated ball size from t - 1 to t
+     *     is the number of nodes at distance t, which gives the sums used
+     *     by distanceCentrality. Passes stop when no counter changes, i.e.
+     *     after about the diameter of the graph.
+     *
+     * <p>
+     *     With 2^log2m registers per counter, each ball size has a relative
+     *     standard error of about 1.04 / sqrt(2^log2m). The counters take
+     *     2 * 2^log2m bytes per node.
+     *
+     * @param ig     the indexed graph
+     * @param log2m  the base-2 log of the number of registers, in [4, 16]
+     * @param event  receives the number of passes, or null
+     * @return       {closeness, harmonic}, indexed by node
+     */
+    static double[][] hyperBall(final IndexedGraph ig, int log2m,
+                                AlgorithmEvent event) {
+        if (log2m < 4 || log2m > 16) {
+            throw new IllegalArgumentException("log2m must be in [4, 16]");
+        }
+
+        final int n = ig.n;
+        final int m = 1 << log2m;
+        if ((long) n * m > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many registers; "
+                    + "use a smaller log2m");
+        }
+        byte[] registers = new byte[n * m];
+        byte[] next = new byte[n * m];
+        for (int v = 0; v < n; v++) {
+            long hash = mix(ig.ids[v]);
+            int register = (int) (hash >>> (64 - log2m));
+            // A sentinel bit caps the rank at the bits left after the index
+            long rest = hash << log2m | 1L << (log2m - 1);
+            int rank = Long.numberOfLeadingZeros(rest) + 1;
+            registers[v * m + register] = (byte) rank;
+        }
+
+        final double[] size = new double[n];
+        final double[] total = new double[n];
+        final double[] inverse = new double[n];
+        boolean[] changed = new boolean[n];
+        boolean[] nextChanged = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            size[v] = estimate(registers, v * m, m);
+            changed[v] = true;
+        }
+
+        boolean any = true;
+        for (int t = 1; any; t++) {
+            final int depth = t;
+            final byte[] cur = registers;
+            final byte[] nxt = next;
+            final boolean[] dirty = changed;
+            final boolean[] nextDirty = nextChanged;
+            any = IntStream.range(0, n).parallel().map(v -> {
+                int base = v * m;
+                System.arraycopy(cur, base, nxt, base, m);
+                nextDirty[v] = false;
+                boolean stale = false;
+                for (int e = ig.offsets[v]; e < ig.offsets[v + 1]; e++) {
+                    if (dirty[ig.targets[e]]) {
+                        stale = true;
+                        break;
+                    }
+                }
+                if (!stale) {
+                    return 0;
+                }
+
+                boolean grew = false;
+                for (int e = ig.offsets[v]; e < ig.offsets[v + 1]; e++) {
+                    int w = ig.targets[e] * m;
+                    for (int j = 0; j < m; j++) {
+                        if (cur[w + j] > nxt[base + j]) {
+                            nxt[base + j] = cur[w + j];
+                            grew = true;
+                        }
+                    }
+                }
+                if (!grew) {
+                    return 0;
+                }
+
+                double estimate = estimate(nxt, base, m);
+                double delta = Math.max(0.0, estimate - size[v]);
+                size[v] = Math.max(size[v], estimate);
+                total[v] += depth * delta;
+                inverse[v] += delta / depth;
+                nextDirty[v] = true;
+                return 1;
+            }).sum() > 0;
+
+            registers = next;
+            next = cur;
+            changed = nextChanged;
+            nextChanged = dirty;
+            if (event != null) {
+                event.iterations = t;
+            }
+        }
+
+        double[] closeness = new double[n];
+        for (int v = 0; v < n; v++) {
+            closeness[v] = total[v] == 0 ? 0.0 : (size[v] - 1) / total[v];
+        }
+        return new double[][]{closeness, inverse};
+    }
+
+    /**
+     * Estimates the cardinality of one HyperLogLog counter, switching to
+     * linear counting while it is small.
+     *
+     * @param registers  the register array
+     * @param base       the first register of the counter
+     * @param m          the number of registers per counter
+     * @return           the estimated number of distinct items
+     */
+    private static double estimate(byte[] registers, int base, int m) {
+        double sum = 0.0;
+        int zeros = 0;
+        for (int j = base; j < base + m; j++) {
+            sum += Math.scalb(1.0, -registers[j]);
+            if (registers[j] == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return estimate;
+    }
+
+    /**
+     * Hashes a node ID to 64 well-mixed bits (the SplitMix64 finalizer).
+     *
+     * @param id  the node ID
+     * @return    the hash
+     */
+    private static long mix(long id) {
+        long z = id + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     /**
      * Uses the EigenDecompositor class from package la4j to find the principal
      * eigenvector, which corresponds to the largest eigenvector of the supplied
@@ -0,0 +1,133 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * This class provides a partition of the Nodes of a Graph into
+ * components, stored as one int label per Node.
+ *
+ * <p>
+ *     Labels run from 0 to getComponentCount() - 1. For strongly connected
+ *     components found by Tarjan's algorithm the labels are also a
+ *     topological order of the condensation: every edge between two
+ *     components goes from the lower label to the higher one. The parallel
+ *     decomposition gives no such guarantee.
+ *
+ */
+public class ComponentLabeling {
+    private final int[] ids;
+    private final int[] labels;
+    private final int count;
+
+    /**
+     * Creates a labeling, taking ownership of the arrays.
+     *
+     * @param ids     the Node IDs, in ascending order
+     * @param labels  the component of every Node, parallel to ids
+     * @param count   the number of components
+     */
+    ComponentLabeling(int[] ids, int[] labels, int count) {
+        this.ids = ids;
+        this.labels = labels;
+        this.count = count;
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components
+     */
+    public int getComponentCount() {
+        return count;
+    }
+
+    /**
+     * Returns the component of the given Node.
+     *
+     * @param nodeID  the ID of the Node
+     * @return        its component label
+     */
+    public int getComponent(int nodeID) {
+        int i = Arrays.binarySearch(ids, nodeID);
+        if (i < 0) {
+            throw new IllegalArgumentException();
+        }
+        return labels[i];
+    }
+
+    /**
+     * Returns the IDs of the Nodes, in the order used by getLabels().
+     *
+     * @return the Node IDs, in ascending order
+     */
+    public int[] getNodeIDs() {
+        return ids.clone();
+    }
+
+    /**
+     * Returns the component label of every Node.
+     *
+     * @return the labels, parallel to getNodeIDs()
+     */
+    public int[] getLabels() {
+        return labels.clone();
+    }
+
+    /**
+     * Returns the number of Nodes in every component.
+     *
+     * @return the size of every component, indexed by label
+     */
+    public int[] getComponentSizes() {
+        int[] sizes = new int[count];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        return sizes;
+    }
+
+    /**
+     * Returns how many components there are of every size.
+     *
+     * @return a map from component size to the number of components of
+     *         that size, in ascending order of size
+     */
+    public SortedMap<Integer, Integer> getSizeHistogram() {
+        SortedMap<Integer, Integer> histogram = new TreeMap<>();
+        for (int size : getComponentSizes()) {
+            histogram.merge(size, 1, Integer::sum);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the components as sets of Node IDs.
+     *
+     * @return the Set of components
+     */
+    public Set<Set<Integer>> getComponents() {
+        List<Set<Integer>> components = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            components.add(new HashSet<>());
+        }
+        for (int i = 0; i < ids.length; i++) {
+            components.get(labels[i]).add(ids[i]);
+        }
+        return new HashSet<>(components);
+    }
+
+    /**
+     * Returns the raw labels without copying, for use inside the engine.
+     *
+     * @return the labels array
+     */
+    int[] labels() {
+        return labels;
+    }
+}
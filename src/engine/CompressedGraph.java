@@ -0,0 +1,398 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * This class provides a compressed, read-only GraphStorage in the style of
+ * WebGraph, for graphs that should stay in the CPU caches or in RAM.
+ *
+ * <p>
+ *     Nodes are indexed in ascending ID order, and all rows are packed into
+ *     one byte array. The row of node v starts at offsets[v] with its
+ *     out-degree, followed by its out-edges in ascending target order.
+ *     Targets are gap-encoded: the first one as the zigzagged difference
+ *     from v, every later one as the difference from the target before
+ *     it. Degrees and gaps are variable-length integers, seven bits per
+ *     byte with the high bit set on all but the last byte, so most gaps
+ *     take one byte.
+ *
+ * <p>
+ *     Weights are quantized to one byte, stored right after their target,
+ *     and decoded through a table of at most 256 values. If the graph has
+ *     at most 256 distinct weights, such as 1 to 5 star ratings, the table
+ *     holds exactly those values and nothing is lost. Otherwise the table
+ *     spans the weight range in 255 even steps, and a decoded weight is
+ *     off by at most half a step; isLossless() tells the two apart. A
+ *     graph with a single weight stores no weight bytes at all.
+ *
+ * <p>
+ *     The encoding is sequential, so cursors decode rows front to back;
+ *     there is no random access to the i-th edge of a row.
+ *
+ */
+public final class CompressedGraph implements GraphStorage {
+    // Number of distinct weights kept exactly
+    private static final int LEVELS = 256;
+
+    private final int[] ids;
+    private final int[] offsets;
+    private final byte[] data;
+    private final double[] table;
+    private final boolean weighted;
+    private final boolean lossless;
+    private final long m;
+
+    private CompressedGraph(int[] ids, int[] offsets, byte[] data,
+                            double[] table, boolean lossless, long m) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.data = data;
+        this.table = table;
+        this.weighted = table.length > 1;
+        this.lossless = lossless;
+        this.m = m;
+    }
+
+    /**
+     * Compresses a Graph.
+     *
+     * @param g  the Graph
+     * @return   the compressed copy
+     */
+    public static CompressedGraph of(Graph g) {
+        if (g == null) {
+            throw new IllegalArgumentException();
+        }
+        return of(IndexedGraph.of(g));
+    }
+
+    /**
+     * Compresses a graph held in any storage, such as an OffHeapGraph. The
+     * storage is read twice, once for the weights and once for the rows,
+     * and is left open.
+     *
+     * @param g  the storage
+     * @return   the compressed copy
+     */
+    public static CompressedGraph of(GraphStorage g) {
+        if (g == null) {
+            throw new IllegalArgumentException();
+        }
+
+        int n = g.numNodes();
+        int[] ids = new int[n];
+        for (int v = 0; v < n; v++) {
+            ids[v] = g.getID(v);
+        }
+
+        // Collect the distinct weights, up to LEVELS of them
+        NeighborCursor cursor = g.cursor();
+        double[] distinct = new double[LEVELS];
+        int numDistinct = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < n; v++) {
+            cursor.reset(v);
+            while (cursor.next()) {
+                double w = cursor.weight();
+                min = Math.min(min, w);
+                max = Math.max(max, w);
+                if (numDistinct > LEVELS) {
+                    continue;
+                }
+                int i = Arrays.binarySearch(distinct, 0, numDistinct, w);
+                if (i < 0) {
+                    if (numDistinct == LEVELS) {
+                        numDistinct++;
+                        continue;
+                    }
+                    i = -i - 1;
+                    System.arraycopy(distinct, i, distinct, i + 1,
+                            numDistinct - i);
+                    distinct[i] = w;
+                    numDistinct++;
+                }
+            }
+        }
+
+        boolean lossless = numDistinct <= LEVELS;
+        double[] table;
+        if (numDistinct == 0) {
+            table = new double[]{0.0};
+        } else if (lossless) {
+            table = Arrays.copyOf(distinct, numDistinct);
+        } else {
+            table = new double[LEVELS];
+            for (int i = 0; i < LEVELS; i++) {
+                table[i] = min + (max - min) * i / (LEVELS - 1);
+            }
+        }
+
+        Encoder encoder = new Encoder(n, table.length > 1);
+        for (int v = 0; v < n; v++) {
+            encoder.startRow(v, g.getOutDegree(v));
+            cursor.reset(v);
+            while (cursor.next()) {
+                encoder.addEdge(cursor.target(),
+                        quantize(table, lossless, cursor.weight()));
+            }
+        }
+        return new CompressedGraph(ids, encoder.offsets, encoder.finish(),
+                table, lossless, encoder.numEdges);
+    }
+
+    @Override
+    public int numNodes() {
+        return ids.length;
+    }
+
+    @Override
+    public long numEdges() {
+        return m;
+    }
+
+    @Override
+    public int getID(int v) {
+        return ids[v];
+    }
+
+    @Override
+    public int indexOf(int id) {
+        int v = Arrays.binarySearch(ids, id);
+        return v < 0 ? -1 : v;
+    }
+
+    @Override
+    public int getOutDegree(int v) {
+        int pos = offsets[v];
+        int b = data[pos++];
+        int degree = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = data[pos++];
+            degree |= (b & 0x7F) << shift;
+        }
+        return degree;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public boolean hasNegativeWeights() {
+        return m > 0 && table[0] < 0;
+    }
+
+    /**
+     * Builds the compressed transpose. The weight codes are copied as they
+     * are, so no further precision is lost.
+     *
+     * @return the reversed graph
+     */
+    @Override
+    public CompressedGraph transpose() {
+        int n = ids.length;
+        int[] revOffsets = new int[n + 1];
+        Cursor cursor = new Cursor();
+        for (int u = 0; u < n; u++) {
+            cursor.reset(u);
+            while (cursor.next()) {
+                revOffsets[cursor.target() + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            revOffsets[v + 1] += revOffsets[v];
+        }
+
+        int[] fill = Arrays.copyOf(revOffsets, n);
+        int[] sources = new int[revOffsets[n]];
+        byte[] codes = weighted ? new byte[revOffsets[n]] : null;
+        for (int u = 0; u < n; u++) {
+            cursor.reset(u);
+            while (cursor.next()) {
+                int pos = fill[cursor.target()]++;
+                sources[pos] = u;
+                if (weighted) {
+                    codes[pos] = cursor.code;
+                }
+            }
+        }
+
+        Encoder encoder = new Encoder(n, weighted);
+        for (int v = 0; v < n; v++) {
+            encoder.startRow(v, revOffsets[v + 1] - revOffsets[v]);
+            for (int e = revOffsets[v]; e < revOffsets[v + 1]; e++) {
+                encoder.addEdge(sources[e], weighted ? codes[e] : 0);
+            }
+        }
+        return new CompressedGraph(ids, encoder.offsets, encoder.finish(),
+                table, lossless, m);
+    }
+
+    /**
+     * Method for checking whether every weight is stored exactly.
+     *
+     * @return true if there are at most 256 distinct weights
+     */
+    public boolean isLossless() {
+        return lossless;
+    }
+
+    /**
+     * Returns the size of the encoded rows, without the per-node ID and
+     * offset arrays.
+     *
+     * @return the number of bytes
+     */
+    public long getEncodedSize() {
+        return data.length;
+    }
+
+    /**
+     * Finds the code of a weight.
+     *
+     * @param table     the decoding table
+     * @param lossless  whether the table holds every weight
+     * @param w         the weight
+     * @return          the code, as a byte
+     */
+    private static byte quantize(double[] table, boolean lossless, double w) {
+        if (table.length == 1) {
+            return 0;
+        }
+        if (lossless) {
+            return (byte) Arrays.binarySearch(table, w);
+        }
+        double step = (table[LEVELS - 1] - table[0]) / (LEVELS - 1);
+        return (byte) Math.round((w - table[0]) / step);
+    }
+
+    /**
+     * This class provides a cursor that decodes one row at a time.
+     */
+    private final class Cursor implements NeighborCursor {
+        private int pos;
+        private int remaining;
+        private int target;
+        private boolean first;
+        private byte code;
+
+        @Override
+        public void reset(int v) {
+            pos = offsets[v];
+            remaining = readVarint();
+            target = v;
+            first = true;
+        }
+
+        @Override
+        public boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            int gap = readVarint();
+            if (first) {
+                // Zigzag: 0, -1, 1, -2, ... are 0, 1, 2, 3, ...
+                target += (gap >>> 1) ^ -(gap & 1);
+                first = false;
+            } else {
+                target += gap;
+            }
+            if (weighted) {
+                code = data[pos++];
+            }
+            return true;
+        }
+
+        @Override
+        public int target() {
+            return target;
+        }
+
+        @Override
+        public double weight() {
+            return table[code & 0xFF];
+        }
+
+        private int readVarint() {
+            int b = data[pos++];
+            int value = b & 0x7F;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = data[pos++];
+                value |= (b & 0x7F) << shift;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * This class provides the row encoder, which appends to a growing byte
+     * array. Rows must be written in node order, with their targets
+     * ascending.
+     */
+    private static final class Encoder {
+        final int[] offsets;
+        final boolean weighted;
+        long numEdges = 0;
+        private byte[] out;
+        private int size = 0;
+        private int source;
+        private int previous;
+        private boolean first;
+
+        Encoder(int n, boolean weighted) {
+            this.offsets = new int[n + 1];
+            this.weighted = weighted;
+            this.out = new byte[Math.max(16, 2 * n)];
+        }
+
+        void startRow(int v, int degree) {
+            offsets[v] = size;
+            source = v;
+            first = true;
+            writeVarint(degree);
+        }
+
+        void addEdge(int target, byte code) {
+            if (first) {
+                int delta = target - source;
+                writeVarint((delta << 1) ^ (delta >> 31));
+                first = false;
+            } else {
+                writeVarint(target - previous);
+            }
+            previous = target;
+            if (weighted) {
+                ensureCapacity(1);
+                out[size++] = code;
+            }
+            numEdges++;
+        }
+
+        byte[] finish() {
+            offsets[offsets.length - 1] = size;
+            return Arrays.copyOf(out, size);
+        }
+
+        private void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                out[size++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            out[size++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > out.length) {
+                if (out.length > Integer.MAX_VALUE - 8 - out.length / 2) {
+                    throw new IllegalArgumentException(
+                            "Graph too large to compress");
+                }
+                out = Arrays.copyOf(out, out.length + out.length / 2 + 8);
+            }
+        }
+    }
+}
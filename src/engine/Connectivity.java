@@ -1,15 +1,34 @@
 package engine;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.Set;
-import java.util.HashSet;
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * This class provides methods for determining the connectivity
- * of a Graph, including Kosaraju's algorithm.
+ * of a Graph, including Tarjan's algorithm, a parallel
+ * forward-backward SCC decomposition and a concurrent union-find
+ * for weakly connected components.
  *
  */
 class Connectivity {
+    // Color of nodes whose component is known
+    private static final int DONE = -1;
+    // Sets smaller than this are finished with sequential Tarjan
+    private static final int SEQUENTIAL_SCC = 1 << 14;
+    // Deepest forward-backward split before falling back to Tarjan
+    private static final int MAX_SPLIT_DEPTH = 64;
+    // Frontiers smaller than this are expanded on one thread
+    private static final int SEQUENTIAL_FRONTIER = 1 << 10;
+    // CAS access to the elements of an int[]
+    private static final VarHandle INTS =
+            MethodHandles.arrayElementVarHandle(int[].class);
+
     private Connectivity() {
         // This class should not be instantiated
         throw new IllegalStateException();
@@ -17,70 +36,571 @@ class Connectivity {
 
     /**
      * Method for returning the strongly connected components of
-     * a given Graph, using Kosaraju's algorithm.
-     * 
-     * @param g  the Graph on which to run Kosaraju's
+     * a given Graph, using Tarjan's algorithm.
+     *
+     * @param g  the Graph on which to run Tarjan's
      * @return   the Set of connected components
      */
     static Set<Set<Integer>> getSCC(Graph g) {
-        Stack<Node> s = dfs(g);
-        Set<Set<Integer>> components = new HashSet<>();
-        Graph reverse = g.copyOf(true);
-        Set<Node> discovered = new HashSet<>();
-        while (!s.isEmpty()) {
-            Node src = s.pop();
-            if (discovered.contains(src)) {
+        return tarjan(IndexedGraph.of(g)).getComponents();
+    }
+
+    /**
+     * Finds the strongly connected components of a graph with an iterative
+     * version of Tarjan's algorithm, in a single O(V + E) pass.
+     *
+     * <p>
+     *     The recursion is replaced by an explicit call stack of nodes and a
+     *     per-node cursor into its edge list, so no chain is too long. Each
+     *     edge is looked at exactly once. Components are found sinks first;
+     *     their labels are then flipped so that they follow a topological
+     *     order of the condensation.
+     *
+     * @param ig  the indexed graph
+     * @return    the component of every node
+     */
+    static ComponentLabeling tarjan(IndexedGraph ig) {
+        int[] labels = new int[ig.n];
+        int count = tarjan(ig, null, null, 0, null, labels);
+
+        for (int v = 0; v < ig.n; v++) {
+            labels[v] = count - 1 - labels[v];
+        }
+
+        return new ComponentLabeling(ig.ids.clone(), labels, count);
+    }
+
+    /**
+     * Finds the strongly connected components of a graph on every core,
+     * using forward-backward decomposition with trimming (as in the
+     * Multistep algorithm).
+     *
+     * <p><ol>
+     *     <li>Trim: nodes with no remaining in-edges or no remaining
+     *     out-edges are components on their own. All nodes are checked in
+     *     parallel, in rounds, until a round removes little.
+     *     <li>Forward-backward: the remaining nodes get one color. From a
+     *     pivot of high degree, a parallel, level-synchronous BFS marks
+     *     everything it reaches forwards, then a second BFS on the transpose
+     *     marks everything it reaches backwards. The nodes reached both
+     *     ways are the pivot's component. Every other component lies wholly
+     *     within the forward-only, backward-only or unreached nodes, so
+     *     these three sets are recolored and solved as independent
+     *     fork-join tasks.
+     *     <li>Sets below SEQUENTIAL_SCC nodes are finished with Tarjan's
+     *     algorithm restricted to their color.
+     * </ol><p>
+     *
+     * Unlike {@link #tarjan(IndexedGraph)}, the labels are not in
+     * topological order.
+     *
+     * @param ig  the indexed graph
+     * @return    the component of every node
+     */
+    static ComponentLabeling parallelSCC(IndexedGraph ig) {
+        SccContext ctx = new SccContext(ig);
+        trim(ctx);
+
+        int size = 0;
+        for (int v = 0; v < ig.n; v++) {
+            if (ctx.color[v] == 0) {
+                size++;
+            }
+        }
+        int[] set = new int[size];
+        size = 0;
+        for (int v = 0; v < ig.n; v++) {
+            if (ctx.color[v] == 0) {
+                set[size++] = v;
+            }
+        }
+
+        ForkJoinPool.commonPool().invoke(new SccTask(ctx, set, 0, 0));
+        return new ComponentLabeling(ig.ids.clone(), ctx.labels,
+                ctx.nextLabel.get());
+    }
+
+    /**
+     * Shared state of one parallel SCC run. Concurrent tasks only ever
+     * write the entries of the nodes in their own set.
+     */
+    private static class SccContext {
+        final IndexedGraph graph;
+        final IndexedGraph reverse;
+        // Node to its current color, or DONE
+        final int[] color;
+        final int[] labels;
+        final int[] local;
+        final AtomicInteger nextLabel = new AtomicInteger();
+        final AtomicInteger nextColor = new AtomicInteger(1);
+
+        SccContext(IndexedGraph ig) {
+            graph = ig;
+            reverse = ig.transpose();
+            color = new int[ig.n];
+            labels = new int[ig.n];
+            local = new int[ig.n];
+        }
+    }
+
+    /**
+     * Labels every node that has no in-edges or no out-edges from other
+     * unlabelled nodes, checking all nodes in parallel, round after round
+     * while each round still removes at least 1/64 of what is left.
+     *
+     * @param ctx  the run state
+     */
+    private static void trim(final SccContext ctx) {
+        int remaining = ctx.graph.n;
+        while (remaining > 0) {
+            int removed = IntStream.range(0, ctx.graph.n).parallel()
+                    .map(v -> {
+                        if (ctx.color[v] == DONE
+                                || (hasLiveNeighbor(ctx, ctx.graph, v)
+                                && hasLiveNeighbor(ctx, ctx.reverse, v))) {
+                            return 0;
+                        }
+                        ctx.labels[v] = ctx.nextLabel.getAndIncrement();
+                        ctx.color[v] = DONE;
+                        return 1;
+                    }).sum();
+            remaining -= removed;
+            if (removed == 0 || removed < remaining / 64) {
+                break;
+            }
+        }
+    }
+
+    private static boolean hasLiveNeighbor(SccContext ctx, IndexedGraph g,
+                                           int v) {
+        for (int e = g.offsets[v]; e < g.offsets[v + 1]; e++) {
+            int w = g.targets[e];
+            if (w != v && ctx.color[w] != DONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Solves the SCCs of one color class.
+     */
+    private static class SccTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient SccContext ctx;
+        private final int[] set;
+        private final int c;
+        private final int depth;
+
+        SccTask(SccContext ctx, int[] set, int c, int depth) {
+            this.ctx = ctx;
+            this.set = set;
+            this.c = c;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (set.length == 0) {
+                return;
+            }
+            if (set.length < SEQUENTIAL_SCC || depth >= MAX_SPLIT_DEPTH) {
+                int count = tarjan(ctx.graph, set, ctx.color, c, ctx.local,
+                        ctx.labels);
+                int base = ctx.nextLabel.getAndAdd(count);
+                for (int v : set) {
+                    ctx.labels[v] += base;
+                }
+                return;
+            }
+
+            // Pick the pivot most likely to sit in a large component
+            int pivot = set[0];
+            long best = -1;
+            for (int v : set) {
+                long score = (long) (ctx.graph.offsets[v + 1]
+                        - ctx.graph.offsets[v] + 1)
+                        * (ctx.reverse.offsets[v + 1]
+                        - ctx.reverse.offsets[v] + 1);
+                if (score > best) {
+                    best = score;
+                    pivot = v;
+                }
+            }
+
+            int forward = ctx.nextColor.getAndIncrement();
+            int backward = ctx.nextColor.getAndIncrement();
+            int both = ctx.nextColor.getAndIncrement();
+            ctx.color[pivot] = forward;
+            reach(ctx.graph, pivot, c, forward, -2, -2);
+            ctx.color[pivot] = both;
+            reach(ctx.reverse, pivot, forward, both, c, backward);
+
+            int label = ctx.nextLabel.getAndIncrement();
+            int numForward = 0;
+            int numBackward = 0;
+            int numRest = 0;
+            for (int v : set) {
+                int k = ctx.color[v];
+                if (k == forward) {
+                    numForward++;
+                } else if (k == backward) {
+                    numBackward++;
+                } else if (k == c) {
+                    numRest++;
+                }
+            }
+            int[] forwardSet = new int[numForward];
+            int[] backwardSet = new int[numBackward];
+            int[] restSet = new int[numRest];
+            numForward = numBackward = numRest = 0;
+            for (int v : set) {
+                int k = ctx.color[v];
+                if (k == both) {
+                    ctx.labels[v] = label;
+                    ctx.color[v] = DONE;
+                } else if (k == forward) {
+                    forwardSet[numForward++] = v;
+                } else if (k == backward) {
+                    backwardSet[numBackward++] = v;
+                } else {
+                    restSet[numRest++] = v;
+                }
+            }
+
+            invokeAll(new SccTask(ctx, forwardSet, forward, depth + 1),
+                    new SccTask(ctx, backwardSet, backward, depth + 1),
+                    new SccTask(ctx, restSet, c, depth + 1));
+        }
+
+        /**
+         * Runs a level-synchronous BFS from start, recoloring every node it
+         * reaches: color from1 becomes to1 and color from2 becomes to2.
+         * Other colors stop the search. Large frontiers are expanded in
+         * parallel, with a CAS on the color deciding who claims a node.
+         */
+        private void reach(final IndexedGraph g, int start, final int from1,
+                           final int to1, final int from2, final int to2) {
+            int[] frontier = {start};
+            while (frontier.length > 0) {
+                if (frontier.length < SEQUENTIAL_FRONTIER) {
+                    frontier = expand(g, frontier, 0, frontier.length,
+                            from1, to1, from2, to2);
+                    continue;
+                }
+
+                final int[] current = frontier;
+                final int chunks = (current.length + SEQUENTIAL_FRONTIER - 1)
+                        / SEQUENTIAL_FRONTIER;
+                final int[][] parts = new int[chunks][];
+                IntStream.range(0, chunks).parallel().forEach(k -> {
+                    int lo = k * SEQUENTIAL_FRONTIER;
+                    int hi = Math.min(current.length, lo + SEQUENTIAL_FRONTIER);
+                    parts[k] = expand(g, current, lo, hi, from1, to1,
+                            from2, to2);
+                });
+                int total = 0;
+                for (int[] part : parts) {
+                    total += part.length;
+                }
+                frontier = new int[total];
+                total = 0;
+                for (int[] part : parts) {
+                    System.arraycopy(part, 0, frontier, total, part.length);
+                    total += part.length;
+                }
+            }
+        }
+
+        private int[] expand(IndexedGraph g, int[] frontier, int lo, int hi,
+                             int from1, int to1, int from2, int to2) {
+            int[] next = new int[16];
+            int size = 0;
+            int[] color = ctx.color;
+            for (int i = lo; i < hi; i++) {
+                int u = frontier[i];
+                for (int e = g.offsets[u]; e < g.offsets[u + 1]; e++) {
+                    int w = g.targets[e];
+                    int k = color[w];
+                    boolean claimed = false;
+                    if (k == from1) {
+                        claimed = INTS.compareAndSet(color, w, from1, to1);
+                    } else if (k == from2) {
+                        claimed = INTS.compareAndSet(color, w, from2, to2);
+                    }
+                    if (claimed) {
+                        if (size == next.length) {
+                            next = Arrays.copyOf(next, 2 * size);
+                        }
+                        next[size++] = w;
+                    }
+                }
+            }
+            return Arrays.copyOf(next, size);
+        }
+    }
+
+    /**
+     * Runs Tarjan's algorithm over either the whole graph or one color
+     * class of it. SCCs never cross a color class in the parallel
+     * algorithm, so the edges leaving it can simply be ignored.
+     *
+     * @param ig      the indexed graph
+     * @param set     the nodes to run on, or null for every node
+     * @param color   the color of every node, or null for every node
+     * @param c       the color of the nodes in set
+     * @param local   scratch space mapping a node to its position in set,
+     *                or null for every node
+     * @param labels  receives, for each node of set, its component number
+     *                in the order the components were completed
+     * @return        the number of components found
+     */
+    private static int tarjan(IndexedGraph ig, int[] set, int[] color,
+                              int c, int[] local, int[] labels) {
+        int size = (set == null) ? ig.n : set.length;
+        int[] offsets = ig.offsets;
+        int[] targets = ig.targets;
+        if (set != null) {
+            for (int i = 0; i < size; i++) {
+                local[set[i]] = i;
+            }
+        }
+
+        // Everything below is indexed by position in set
+        // Discovery order, or -1 if unvisited
+        int[] order = new int[size];
+        int[] low = new int[size];
+        int[] cursor = new int[size];
+        boolean[] onStack = new boolean[size];
+        // Nodes of components not yet complete
+        int[] stack = new int[size];
+        int stackSize = 0;
+        // Nodes whose edges are being explored
+        int[] calls = new int[size];
+        int depth = 0;
+        int counter = 0;
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            order[i] = -1;
+        }
+
+        for (int root = 0; root < size; root++) {
+            if (order[root] >= 0) {
                 continue;
             }
 
-            Set<Node> connected = Search.dfsTree(reverse,
-                    reverse.getNodeByID(src.getID())).keySet();
-            connected.removeAll(discovered);
-            discovered.addAll(connected);
-            Set<Integer> component = new HashSet<>();
-            for (Node node : connected) {
-                component.add(node.getID());
+            order[root] = low[root] = counter++;
+            cursor[root] = offsets[(set == null) ? root : set[root]];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            calls[depth++] = root;
+
+            while (depth > 0) {
+                int i = calls[depth - 1];
+                int u = (set == null) ? i : set[i];
+                if (cursor[i] < offsets[u + 1]) {
+                    int w = targets[cursor[i]++];
+                    if (color != null) {
+                        if (color[w] != c) {
+                            continue;
+                        }
+                        w = local[w];
+                    }
+                    if (order[w] < 0) {
+                        // Tree edge: descend into w
+                        order[w] = low[w] = counter++;
+                        cursor[w] = offsets[(set == null) ? w : set[w]];
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        calls[depth++] = w;
+                    } else if (onStack[w]) {
+                        low[i] = Math.min(low[i], order[w]);
+                    }
+                    continue;
+                }
+
+                // All edges of u are done
+                depth--;
+                if (depth > 0) {
+                    int parent = calls[depth - 1];
+                    low[parent] = Math.min(low[parent], low[i]);
+                }
+                if (low[i] == order[i]) {
+                    // u is the root of a component
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        labels[(set == null) ? w : set[w]] = count;
+                    } while (w != i);
+                    count++;
+                }
             }
-            components.add(component);
         }
-        return components;
+
+        return count;
     }
-    
+
     /**
-     * Method for returning all of the Nodes in a given graph in
-     * a Stack form representing the reverse of the order in
-     * which the Nodes finish, using dfs.
-     * 
-     * @param g  the Graph on which to run dfs
-     * @return   the Stack of Nodes
+     * Finds the weakly connected components of a graph with a lock-free,
+     * concurrent union-find.
+     *
+     * <p>
+     *     Every edge is a union, and all edges are processed in parallel.
+     *     A union always hangs the larger root under the smaller one with a
+     *     CAS, retrying if either root changed underneath it, so the forest
+     *     never has a cycle and every root is the smallest index of its
+     *     tree. Finds halve the path as they go. The whole pass is close to
+     *     linear in the number of edges.
+     * <p>
+     *
+     * Components are labelled in the order of their smallest Node ID.
+     *
+     * @param g  the graph, in any storage
+     * @return   the component of every node
      */
-    private static Stack<Node> dfs(Graph g) {
-        Stack<Node> s = new Stack<>();
-        Set<Node> visited = new HashSet<>();
-        
-        for (Node node : g.getAllNodes()) {
-            dfsVisit(node, s, visited);
-        }
-        
-        return s;
+    static ComponentLabeling wcc(GraphStorage g) {
+        final int n = g.numNodes();
+        final int[] parent = new int[n];
+        Arrays.parallelSetAll(parent, v -> v);
+        final ThreadLocal<NeighborCursor> cursors =
+                ThreadLocal.withInitial(g::cursor);
+
+        IntStream.range(0, n).parallel().forEach(u -> {
+            NeighborCursor cursor = cursors.get();
+            cursor.reset(u);
+            while (cursor.next()) {
+                union(parent, u, cursor.target());
+            }
+        });
+
+        // Roots are the smallest index in their tree, so they are labelled
+        // before any other node of their component
+        int[] labels = new int[n];
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            labels[v] = root == v ? count++ : labels[root];
+        }
+        int[] ids = new int[n];
+        for (int v = 0; v < n; v++) {
+            ids[v] = g.getID(v);
+        }
+        return new ComponentLabeling(ids, labels, count);
+    }
+
+    /**
+     * Merges the trees of two nodes.
+     *
+     * @param parent  the union-find forest
+     * @param u       a node
+     * @param v       another node
+     */
+    private static void union(int[] parent, int u, int v) {
+        while (true) {
+            u = find(parent, u);
+            v = find(parent, v);
+            if (u == v) {
+                return;
+            }
+            if (u < v) {
+                int tmp = u;
+                u = v;
+                v = tmp;
+            }
+            if (INTS.compareAndSet(parent, u, u, v)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the root of a node's tree, pointing every other node on the
+     * way at its grandparent.
+     *
+     * @param parent  the union-find forest
+     * @param v       a node
+     * @return        the root
+     */
+    private static int find(int[] parent, int v) {
+        while (true) {
+            int p = (int) INTS.getAcquire(parent, v);
+            if (p == v) {
+                return v;
+            }
+            int grandparent = (int) INTS.getAcquire(parent, p);
+            if (grandparent != p) {
+                // Losing this race is harmless: another thread has only
+                // moved v even closer to the root
+                INTS.compareAndSet(parent, v, p, grandparent);
+            }
+            v = grandparent;
+        }
     }
-    
+
     /**
-     * Method for recursively visiting a given Node and all of its children.
-     * 
-     * @param src      the source Node
-     * @param s        the stack of Nodes that have finished
-     * @param visited  the set of visited Nodes
+     * Builds the condensation of a graph: one Node per strongly connected
+     * component, with the component label as its ID, and an edge between
+     * two components whenever any edge joins them. The weight of each
+     * condensed edge is the number of edges it stands for.
+     *
+     * @param ig   the indexed graph
+     * @param scc  the strongly connected components of ig
+     * @return     the condensation, which is a DAG
      */
-    private static void dfsVisit(Node src, Stack<Node> s, Set<Node> visited) {
-        if (!visited.contains(src)) {
-            visited.add(src);
-            for (Node node : src.getNeighbors()) {
-                if (!visited.contains(node)) {
-                    dfsVisit(node, s, visited);
+    static Graph condense(IndexedGraph ig, ComponentLabeling scc) {
+        int n = ig.n;
+        int count = scc.getComponentCount();
+        int[] labels = scc.labels();
+
+        // Group the nodes by component
+        int[] start = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            start[labels[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] members = new int[n];
+        int[] fill = start.clone();
+        for (int v = 0; v < n; v++) {
+            members[fill[labels[v]]++] = v;
+        }
+
+        Graph dag = new Graph();
+        for (int c = 0; c < count; c++) {
+            dag.addNode(c, new Node(c));
+        }
+
+        // Tally the edges out of each component, one component at a time
+        int[] seen = new int[count];
+        int[] touched = new int[count];
+        double[] multiplicity = new double[count];
+        for (int c = 0; c < count; c++) {
+            int numTouched = 0;
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                int u = members[i];
+                for (int e = ig.offsets[u]; e < ig.offsets[u + 1]; e++) {
+                    int d = labels[ig.targets[e]];
+                    if (d == c) {
+                        continue;
+                    }
+                    if (seen[d] != c + 1) {
+                        seen[d] = c + 1;
+                        multiplicity[d] = 0.0;
+                        touched[numTouched++] = d;
+                    }
+                    multiplicity[d]++;
                 }
             }
-            s.push(src);
+            for (int i = 0; i < numTouched; i++) {
+                int d = touched[i];
+                dag.addEdge(c, d, multiplicity[d]);
+            }
         }
+
+        return dag;
     }
 }
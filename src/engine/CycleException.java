@@ -0,0 +1,38 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This exception is thrown by algorithms that cannot run on a Graph
+ * containing a cycle (or a negative cycle). Unlike a bare
+ * IllegalArgumentException, it carries the offending cycle.
+ *
+ */
+public class CycleException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Integer> cycle;
+
+    /**
+     * Creates a CycleException for the given cycle.
+     *
+     * @param message  the detail message
+     * @param cycle    the Node IDs of the cycle, in edge order; the last
+     *                 Node has an edge back to the first
+     */
+    public CycleException(String message, List<Integer> cycle) {
+        super(message + ": " + cycle);
+        this.cycle = Collections.unmodifiableList(new ArrayList<>(cycle));
+    }
+
+    /**
+     * Returns the cycle that was found.
+     *
+     * @return the Node IDs of the cycle, in edge order
+     */
+    public List<Integer> getCycle() {
+        return cycle;
+    }
+}
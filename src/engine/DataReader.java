@@ -18,6 +18,7 @@ public class DataReader {
      * @return the Graph representation.
      */
     public static Graph readMovieLensData() {
+        long start = Metrics.start();
         Graph g = new Graph();
         try {
             Scanner sc = new Scanner(new File(MOVIE_LENS_FILE));
@@ -36,6 +37,8 @@ public class DataReader {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        Metrics.stop("dataReader.load", start);
+        Metrics.count("dataReader.nodes", g.getSize());
         return g;
     }
     
@@ -46,6 +49,7 @@ public class DataReader {
      * @return          the Graph represented by the file
      */
     public static Graph readMovieLensTestData(String filename) {
+        long start = Metrics.start();
         Graph g = new Graph();
         try {
             Scanner sc = new Scanner(new File(filename));
@@ -64,6 +68,8 @@ public class DataReader {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        Metrics.stop("dataReader.load", start);
+        Metrics.count("dataReader.nodes", g.getSize());
         return g;
     }
     
@@ -74,7 +80,8 @@ public class DataReader {
      * @return          the Graph represented by the .txt file
      */
     public static Graph readGraphData(String filename) {
-        Graph g = new Graph();         
+        long start = Metrics.start();
+        Graph g = new Graph();
         try {
             Scanner sc = new Scanner(new File(filename));
             while (sc.hasNextLine()) {
@@ -91,6 +98,8 @@ public class DataReader {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        Metrics.stop("dataReader.load", start);
+        Metrics.count("dataReader.nodes", g.getSize());
         return g;
     }
 }
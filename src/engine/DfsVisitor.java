@@ -0,0 +1,69 @@
+package engine;
+
+/**
+ * This interface receives the events of a depth-first search. Every method
+ * does nothing by default, so a visitor only overrides what it needs.
+ *
+ * <p>
+ *     Timestamps come from a single counter that ticks once whenever a
+ *     Node is discovered or finished, starting at 1. Every edge out of a
+ *     discovered Node is reported exactly once, as a tree, back, forward
+ *     or cross edge, before that Node finishes.
+ *
+ */
+public interface DfsVisitor {
+    /**
+     * Called when a Node is discovered, before any of its edges.
+     *
+     * @param nodeID  the ID of the Node
+     * @param time    its discovery time
+     */
+    default void preVisit(int nodeID, int time) {
+    }
+
+    /**
+     * Called when every edge out of a Node has been explored.
+     *
+     * @param nodeID  the ID of the Node
+     * @param time    its finish time
+     */
+    default void postVisit(int nodeID, int time) {
+    }
+
+    /**
+     * Called for an edge that discovers its target.
+     *
+     * @param srcID  the ID of the edge's source Node
+     * @param tgtID  the ID of the edge's target Node
+     */
+    default void treeEdge(int srcID, int tgtID) {
+    }
+
+    /**
+     * Called for an edge to a Node that is still on the DFS stack, i.e.
+     * an edge that closes a cycle. Self-loops are back edges.
+     *
+     * @param srcID  the ID of the edge's source Node
+     * @param tgtID  the ID of the edge's target Node
+     */
+    default void backEdge(int srcID, int tgtID) {
+    }
+
+    /**
+     * Called for a non-tree edge to a finished descendant.
+     *
+     * @param srcID  the ID of the edge's source Node
+     * @param tgtID  the ID of the edge's target Node
+     */
+    default void forwardEdge(int srcID, int tgtID) {
+    }
+
+    /**
+     * Called for an edge to a finished Node that is not a descendant.
+     *
+     * @param srcID  the ID of the edge's source Node
+     * @param tgtID  the ID of the edge's target Node
+     */
+    default void crossEdge(int srcID, int tgtID) {
+    }
+}
@@ -0,0 +1,214 @@
+package engine;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This class provides a compact, read-only all-pairs distance matrix.
+ *
+ * <p>
+ *     The distances are kept in a single row-major double[], indexed by the
+ *     position of each Node ID in ascending order. For callers that expect
+ *     the old nested map, the matrix is also a Map from source ID to a row
+ *     view, itself a Map from target ID to distance. Like the original
+ *     Floyd-Warshall output, a row only contains the targets that can be
+ *     reached from its source. The views are computed on access, so no
+ *     boxed copy of the matrix is ever built.
+ *
+ */
+public class DistanceMatrix extends AbstractMap<Integer, Map<Integer, Double>> {
+    private final int n;
+    private final int[] ids;
+    private final double[] dist;
+
+    /**
+     * Creates a DistanceMatrix over the given data, which it takes
+     * ownership of.
+     *
+     * @param ids   the Node IDs, in ascending order
+     * @param dist  the n * n row-major distances, with
+     *              Double.POSITIVE_INFINITY for unreachable pairs
+     */
+    DistanceMatrix(int[] ids, double[] dist) {
+        this.n = ids.length;
+        this.ids = ids;
+        this.dist = dist;
+    }
+
+    /**
+     * Returns the length of the shortest path between two Nodes.
+     *
+     * @param srcID  the ID of the source Node
+     * @param tgtID  the ID of the target Node
+     * @return       the distance, or Double.POSITIVE_INFINITY if there is
+     *               no path from src to tgt
+     */
+    public double getDistance(int srcID, int tgtID) {
+        int i = Arrays.binarySearch(ids, srcID);
+        int j = Arrays.binarySearch(ids, tgtID);
+        if (i < 0 || j < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        return dist[i * n + j];
+    }
+
+    /**
+     * Returns the IDs of the Nodes in the matrix, in the order of its rows.
+     *
+     * @return the Node IDs, in ascending order
+     */
+    public int[] getNodeIDs() {
+        return ids.clone();
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Map<Integer, Double> get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : new Row(i);
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Map<Integer, Double>>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, Map<Integer, Double>>>() {
+            @Override
+            public int size() {
+                return n;
+            }
+
+            @Override
+            public Iterator<Map.Entry<Integer, Map<Integer, Double>>> iterator() {
+                return new Iterator<Map.Entry<Integer, Map<Integer, Double>>>() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < n;
+                    }
+
+                    @Override
+                    public Map.Entry<Integer, Map<Integer, Double>> next() {
+                        if (i >= n) {
+                            throw new NoSuchElementException();
+                        }
+                        Row row = new Row(i);
+                        return new SimpleImmutableEntry<Integer,
+                                Map<Integer, Double>>(ids[i++], row);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the position of the given key in ids, or -1.
+     *
+     * @param key  a Node ID
+     * @return     its index
+     */
+    private int indexOf(Object key) {
+        if (!(key instanceof Integer)) {
+            return -1;
+        }
+        int i = Arrays.binarySearch(ids, (Integer) key);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * A read-only view of one row of the matrix, holding only the
+     * reachable targets.
+     */
+    private class Row extends AbstractMap<Integer, Double> {
+        private final int base;
+        private int size = -1;
+
+        Row(int i) {
+            this.base = i * n;
+        }
+
+        @Override
+        public int size() {
+            if (size < 0) {
+                int count = 0;
+                for (int j = 0; j < n; j++) {
+                    if (dist[base + j] != Double.POSITIVE_INFINITY) {
+                        count++;
+                    }
+                }
+                size = count;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Double get(Object key) {
+            int j = indexOf(key);
+            if (j < 0 || dist[base + j] == Double.POSITIVE_INFINITY) {
+                return null;
+            }
+            return dist[base + j];
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, Double>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, Double>>() {
+                @Override
+                public int size() {
+                    return Row.this.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<Integer, Double>> iterator() {
+                    return new Iterator<Map.Entry<Integer, Double>>() {
+                        private int j = advance(0);
+
+                        private int advance(int from) {
+                            while (from < n && dist[base + from] ==
+                                    Double.POSITIVE_INFINITY) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return j < n;
+                        }
+
+                        @Override
+                        public Map.Entry<Integer, Double> next() {
+                            if (j >= n) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<Integer, Double> entry =
+                                    new SimpleImmutableEntry<>(ids[j],
+                                            dist[base + j]);
+                            j = advance(j + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
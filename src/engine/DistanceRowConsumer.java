@@ -0,0 +1,23 @@
+package engine;
+
+/**
+ * This interface receives the all-pairs shortest path result one source
+ * row at a time, so the full matrix never has to be held in memory.
+ *
+ */
+public interface DistanceRowConsumer {
+    /**
+     * Accepts the shortest path distances from one source Node.
+     *
+     * <p>
+     *     Rows arrive in no particular order and from worker threads, but
+     *     never more than one call at a time. The tgtIDs array is shared by
+     *     every call and must not be modified; dists belongs to the consumer.
+     *
+     * @param srcID   the ID of the source Node
+     * @param tgtIDs  the ID of the target Node for every slot of dists
+     * @param dists   the distance to every target, or
+     *                Double.POSITIVE_INFINITY if it cannot be reached
+     */
+    void accept(int srcID, int[] tgtIDs, double[] dists);
+}
@@ -0,0 +1,382 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class provides PageRank scores that stay fresh while edges are
+ * inserted and deleted.
+ *
+ * <p>
+ *     The scores x are the solution of the linear PageRank system
+ *
+ * <p>
+ *     x = (1 - DF) + DF * A * x
+ *
+ * <p>
+ *     where A is the column-normalized adjacency matrix, reported after
+ *     dividing by their sum. For graphs without sinks this is exactly the
+ *     principal eigenvector used by {@link Centrality#pageRank(Graph)}.
+ *     Edge weights are ignored, as they are there.
+ *
+ * <p>
+ *     The system is solved by Gauss-Southwell style pushes. Alongside x the
+ *     class keeps a residual r with the invariant x + r = (1 - DF) + DF * A * x.
+ *     Pushing a node moves its residual into its score and spreads DF times
+ *     that amount over its out-neighbors, so r shrinks towards zero and only
+ *     nodes with a residual above the tolerance are ever touched. When the
+ *     out-edges of a node u change from column a to column a', adding
+ *     DF * x_u * (a' - a) to r restores the invariant. That costs the
+ *     old and new out-degree of u, and the following pushes only run where
+ *     the change is still felt. A batch of changes is applied as a whole
+ *     before any pushing, so edges that are added and removed together cost
+ *     nothing to propagate.
+ *
+ * <p>
+ *     A DynamicPageRank is not thread-safe.
+ *
+ */
+public class DynamicPageRank {
+    private final double df;
+    private final double tolerance;
+    private final Map<Integer, Integer> index = new HashMap<>();
+    private int n = 0;
+    private int[] ids = new int[0];
+    private int[][] out = new int[0][];
+    private int[] outDegree = new int[0];
+    private double[] score = new double[0];
+    private double[] residual = new double[0];
+    private boolean[] queued = new boolean[0];
+    // Circular FIFO of the queued nodes; a node is queued at most once
+    private int[] queue = new int[0];
+    private int head = 0;
+    private int size = 0;
+    // Edges read by the build and by every push so far, for AlgorithmEvent
+    long edgesTouched = 0;
+
+    /**
+     * Creates the scores of the given graph, solved from scratch.
+     *
+     * @param g          the Graph
+     * @param df         the damping factor, in (0, 1)
+     * @param tolerance  the largest residual left on any node after an
+     *                   update; scores average 1 before normalization
+     */
+    DynamicPageRank(Graph g, double df, double tolerance) {
+        if (!(df > 0 && df < 1) || !(tolerance > 0)) {
+            throw new IllegalArgumentException();
+        }
+
+        this.df = df;
+        this.tolerance = tolerance;
+        IndexedGraph ig = IndexedGraph.of(g);
+        for (int v = 0; v < ig.n; v++) {
+            indexOf(ig.ids[v], true);
+        }
+        for (int v = 0; v < ig.n; v++) {
+            outDegree[v] = ig.offsets[v + 1] - ig.offsets[v];
+            out[v] = Arrays.copyOfRange(ig.targets, ig.offsets[v],
+                    ig.offsets[v + 1]);
+        }
+        edgesTouched = ig.offsets[ig.n];
+        push();
+    }
+
+    /**
+     * Applies a batch of edge insertions and deletions and brings the
+     * scores up to date. Nodes that appear for the first time are added.
+     * If any deletion names an edge that does not exist at that point of
+     * the batch, nothing is applied.
+     *
+     * @param batch  the changes, in order
+     * @return       the updated scores, as from getRanks()
+     */
+    public Map<Integer, Double> applyBatch(Batch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException();
+        }
+        validate(batch);
+
+        // Take out the current contribution of every source that changes
+        Set<Integer> sources = new LinkedHashSet<>();
+        for (int i = 0; i < batch.size; i++) {
+            int u = indexOf(batch.src[i], true);
+            if (sources.add(u)) {
+                spread(u, -1.0);
+            }
+        }
+
+        for (int i = 0; i < batch.size; i++) {
+            int u = indexOf(batch.src[i], false);
+            int v = indexOf(batch.tgt[i], true);
+            if (batch.insert[i]) {
+                if (outDegree[u] == out[u].length) {
+                    out[u] = Arrays.copyOf(out[u], Math.max(4,
+                            2 * outDegree[u]));
+                }
+                out[u][outDegree[u]++] = v;
+            } else {
+                int[] row = out[u];
+                int e = 0;
+                while (row[e] != v) {
+                    e++;
+                }
+                row[e] = row[--outDegree[u]];
+            }
+        }
+
+        // And put back the new one
+        for (int u : sources) {
+            spread(u, 1.0);
+        }
+        push();
+        return getRanks();
+    }
+
+    /**
+     * Returns the current PageRank of every Node.
+     *
+     * @return a map from node ID to rank; the ranks sum to 1
+     */
+    public Map<Integer, Double> getRanks() {
+        double sum = sum();
+        Map<Integer, Double> ranks = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            ranks.put(ids[v], score[v] / sum);
+        }
+        return ranks;
+    }
+
+    /**
+     * Returns the current PageRank of one Node.
+     *
+     * @param nodeID  the ID of the Node
+     * @return        its rank
+     */
+    public double getRank(int nodeID) {
+        Integer v = index.get(nodeID);
+        if (v == null) {
+            throw new IllegalArgumentException();
+        }
+        return score[v] / sum();
+    }
+
+    /**
+     * Returns a bound on the L1 distance between getRanks() and the exact
+     * PageRank vector.
+     *
+     * <p>
+     *     The error in the unnormalized scores is (I - DF * A)^-1 * r, whose
+     *     L1 norm is at most E = |r| / (1 - DF). Normalizing by a sum S that
+     *     is itself off by at most E at most doubles that, giving
+     *     2E / (S - E).
+     *
+     * @return the error bound
+     */
+    public double getErrorBound() {
+        double residualSum = 0.0;
+        for (int v = 0; v < n; v++) {
+            residualSum += Math.abs(residual[v]);
+        }
+        double error = residualSum / (1 - df);
+        double sum = sum();
+        return error < sum ? 2 * error / (sum - error)
+                : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Checks that every deletion in the batch names an existing edge,
+     * counting the edges the batch itself adds and removes before it.
+     *
+     * @param batch  the changes
+     */
+    private void validate(Batch batch) {
+        Map<Long, Integer> pending = new HashMap<>();
+        for (int i = 0; i < batch.size; i++) {
+            long key = ((long) batch.src[i] << 32)
+                    | (batch.tgt[i] & 0xffffffffL);
+            int delta = pending.getOrDefault(key, 0);
+            if (batch.insert[i]) {
+                pending.put(key, delta + 1);
+                continue;
+            }
+
+            Integer u = index.get(batch.src[i]);
+            Integer v = index.get(batch.tgt[i]);
+            int count = delta;
+            if (u != null && v != null) {
+                for (int e = 0; e < outDegree[u]; e++) {
+                    if (out[u][e] == v) {
+                        count++;
+                    }
+                }
+            }
+            if (count <= 0) {
+                throw new IllegalArgumentException("No such edge");
+            }
+            pending.put(key, delta - 1);
+        }
+    }
+
+    /**
+     * Adds sign * DF * x_u * (column u of A) to the residuals.
+     *
+     * @param u     the node
+     * @param sign  1 to add u's contribution, -1 to take it out
+     */
+    private void spread(int u, double sign) {
+        if (outDegree[u] == 0) {
+            return;
+        }
+        double share = sign * df * score[u] / outDegree[u];
+        for (int e = 0; e < outDegree[u]; e++) {
+            addResidual(out[u][e], share);
+        }
+    }
+
+    /**
+     * Pushes nodes until no residual is above the tolerance.
+     */
+    private void push() {
+        long pushed = 0;
+        while (size > 0) {
+            int u = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            queued[u] = false;
+
+            double r = residual[u];
+            residual[u] = 0.0;
+            score[u] += r;
+            if (outDegree[u] > 0) {
+                double share = df * r / outDegree[u];
+                for (int e = 0; e < outDegree[u]; e++) {
+                    addResidual(out[u][e], share);
+                }
+                pushed += outDegree[u];
+            }
+        }
+        edgesTouched += pushed;
+    }
+
+    private void addResidual(int v, double amount) {
+        residual[v] += amount;
+        if (!queued[v] && Math.abs(residual[v]) > tolerance) {
+            queued[v] = true;
+            queue[(head + size) % queue.length] = v;
+            size++;
+        }
+    }
+
+    private double sum() {
+        double sum = 0.0;
+        for (int v = 0; v < n; v++) {
+            sum += score[v];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the index of a node, adding it if asked to.
+     *
+     * @param id      the ID of the node
+     * @param create  whether to add the node if it is new
+     * @return        its index
+     */
+    private int indexOf(int id, boolean create) {
+        Integer v = index.get(id);
+        if (v != null) {
+            return v;
+        }
+        if (!create) {
+            throw new IllegalArgumentException();
+        }
+
+        if (n == ids.length) {
+            grow(Math.max(16, 2 * n));
+        }
+        ids[n] = id;
+        out[n] = new int[0];
+        index.put(id, n);
+        // A new node starts with score 0 and all of its teleport mass as
+        // residual
+        addResidual(n, 1 - df);
+        return n++;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        out = Arrays.copyOf(out, capacity);
+        outDegree = Arrays.copyOf(outDegree, capacity);
+        score = Arrays.copyOf(score, capacity);
+        residual = Arrays.copyOf(residual, capacity);
+        queued = Arrays.copyOf(queued, capacity);
+
+        // Unroll the circular queue into the larger array
+        int[] larger = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            larger[i] = queue[(head + i) % queue.length];
+        }
+        queue = larger;
+        head = 0;
+    }
+
+    /**
+     * This class provides an ordered list of edge insertions and deletions
+     * for applyBatch.
+     */
+    public static class Batch {
+        private int[] src = new int[8];
+        private int[] tgt = new int[8];
+        private boolean[] insert = new boolean[8];
+        private int size = 0;
+
+        /**
+         * Adds an edge insertion to the batch.
+         *
+         * @param srcID  the ID of the edge's source Node
+         * @param tgtID  the ID of the edge's target Node
+         * @return       this batch
+         */
+        public Batch addEdge(int srcID, int tgtID) {
+            return add(srcID, tgtID, true);
+        }
+
+        /**
+         * Adds an edge deletion to the batch. With parallel edges, one of
+         * them is removed.
+         *
+         * @param srcID  the ID of the edge's source Node
+         * @param tgtID  the ID of the edge's target Node
+         * @return       this batch
+         */
+        public Batch removeEdge(int srcID, int tgtID) {
+            return add(srcID, tgtID, false);
+        }
+
+        /**
+         * Returns the number of changes in the batch.
+         *
+         * @return the number of changes
+         */
+        public int size() {
+            return size;
+        }
+
+        private Batch add(int srcID, int tgtID, boolean isInsert) {
+            if (size == src.length) {
+                src = Arrays.copyOf(src, 2 * size);
+                tgt = Arrays.copyOf(tgt, 2 * size);
+                insert = Arrays.copyOf(insert, 2 * size);
+            }
+            src[size] = srcID;
+            tgt[size] = tgtID;
+            insert[size] = isInsert;
+            size++;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package engine;
+
+/**
+ * This interface receives a stream of weighted, directed edges, one at a
+ * time. Graph is an EdgeSink, so generators and readers can build a Graph
+ * directly, but any other consumer (a counter, a file writer, a
+ * compressed store) works without an edge list in between.
+ *
+ */
+@FunctionalInterface
+public interface EdgeSink {
+    /**
+     * Accepts one edge.
+     *
+     * @param srcID   the ID of the edge's source Node
+     * @param tgtID   the ID of the edge's target Node
+     * @param weight  the weight of the edge
+     */
+    void addEdge(int srcID, int tgtID, double weight);
+}
@@ -0,0 +1,410 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * This class provides an offline evaluation of the Recommender over the
+ * MovieLens 100k folds. For every fold, a Recommender is trained on the
+ * .base split and every user of the .test split is scored against their
+ * held-out ratings.
+ *
+ * <p>
+ *     Rating accuracy is measured by the RMSE and MAE of
+ *     Recommender.predict on the held-out ratings. Ranking quality is
+ *     measured by the precision, recall and NDCG of the top k of
+ *     Recommender.recommend, where a held-out rating of at least the
+ *     relevance threshold counts as relevant and gains are binary.
+ *
+ * <p>
+ *     The expensive step, scoring a user against every other user, is done
+ *     once per user and shared by every value of the numUsers grid. Test
+ *     users are evaluated in parallel; the per-user results are kept in
+ *     arrays and reduced in user order afterwards, so the metrics do not
+ *     depend on the scheduling. Only the latencies do.
+ *
+ */
+public class Evaluator {
+    private static final String DATA_DIR = "data/ml-100k/";
+    private static final String[] FOLDS = {"u1", "u2", "u3", "u4", "u5",
+            "ua", "ub"};
+
+    /**
+     * The similarity measure used to find the most similar users.
+     */
+    public enum Similarity {
+        PEARSON, JACCARD
+    }
+
+    private final Similarity similarity;
+    private final int[] numUsersGrid;
+    private final int k;
+    private final double relevanceThreshold;
+
+    /**
+     * Creates an Evaluator.
+     *
+     * @param similarity          the similarity measure
+     * @param numUsersGrid        the numbers of similar users to evaluate
+     * @param k                   the length of the recommendation lists
+     * @param relevanceThreshold  the lowest held-out rating that counts as
+     *                            relevant
+     */
+    public Evaluator(Similarity similarity, int[] numUsersGrid, int k,
+                     double relevanceThreshold) {
+        if (similarity == null || numUsersGrid == null
+                || numUsersGrid.length == 0 || k <= 0) {
+            throw new IllegalArgumentException();
+        }
+        for (int numUsers : numUsersGrid) {
+            if (numUsers <= 0) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        this.similarity = similarity;
+        this.numUsersGrid = numUsersGrid.clone();
+        Arrays.sort(this.numUsersGrid);
+        this.k = k;
+        this.relevanceThreshold = relevanceThreshold;
+    }
+
+    /**
+     * Evaluates every MovieLens 100k fold, u1 to u5, ua and ub.
+     *
+     * @return the results, by fold then by numUsers
+     */
+    public List<Result> evaluateAll() {
+        List<Result> results = new ArrayList<>();
+        for (String fold : FOLDS) {
+            results.addAll(evaluate(fold));
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates one MovieLens 100k fold.
+     *
+     * @param fold  the name of the fold, e.g. "u1"
+     * @return      one result per value of the numUsers grid, ascending
+     */
+    public List<Result> evaluate(String fold) {
+        if (fold == null) {
+            throw new IllegalArgumentException();
+        }
+        Graph train = DataReader.readMovieLensTestData(DATA_DIR + fold
+                + ".base");
+        Graph test = DataReader.readMovieLensTestData(DATA_DIR + fold
+                + ".test");
+        return evaluate(fold, train, test);
+    }
+
+    /**
+     * Evaluates a Recommender trained on one rating graph against the
+     * ratings of another.
+     *
+     * @param fold   the name to report the results under
+     * @param train  the ratings to train on
+     * @param test   the held-out ratings
+     * @return       one result per value of the numUsers grid, ascending
+     */
+    public List<Result> evaluate(String fold, Graph train, Graph test) {
+        if (fold == null || train == null || test == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Recommender r = new Recommender(train);
+        List<Node> testUsers = new ArrayList<>();
+        for (Node node : test.getAllNodes()) {
+            if (node.getOutDegree() > 0 && r.getUser(node.getID()) != null) {
+                testUsers.add(node);
+            }
+        }
+        testUsers.sort((a, b) -> Integer.compare(a.getID(), b.getID()));
+
+        int numUsers = testUsers.size();
+        int numSettings = numUsersGrid.length;
+        UserResult[][] perUser = new UserResult[numSettings][numUsers];
+        long[] latencies = new long[numUsers];
+
+        long start = System.nanoTime();
+        IntStream.range(0, numUsers).parallel().forEach(u -> {
+            long t0 = System.nanoTime();
+            evaluateUser(r, testUsers.get(u), perUser, u);
+            latencies[u] = System.nanoTime() - t0;
+        });
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        List<Result> results = new ArrayList<>();
+        for (int s = 0; s < numSettings; s++) {
+            results.add(reduce(fold, numUsersGrid[s], perUser[s], elapsed,
+                    latencies));
+        }
+        return results;
+    }
+
+    /**
+     * Scores one test user for every value of the numUsers grid.
+     *
+     * @param r         the trained Recommender
+     * @param testUser  the user's Node in the test graph
+     * @param perUser   receives the results, by setting then by user
+     * @param u         the index of the user
+     */
+    private void evaluateUser(Recommender r, Node testUser,
+                              UserResult[][] perUser, int u) {
+        int userID = testUser.getID();
+        Node user = r.getUser(userID);
+        TreeMap<Double, List<Node>> scores = similarity == Similarity.PEARSON
+                ? r.getPearsonScores(userID) : r.getJaccardScores(userID);
+
+        Set<Edge> held = testUser.getEdgeView();
+        int[] itemIDs = new int[held.size()];
+        double[] actual = new double[held.size()];
+        Set<Integer> relevant = new HashSet<>();
+        int i = 0;
+        for (Edge e : held) {
+            itemIDs[i] = e.getTgt().getID();
+            actual[i] = e.getWeight();
+            if (actual[i] >= relevanceThreshold) {
+                relevant.add(itemIDs[i]);
+            }
+            i++;
+        }
+
+        // Walk the scores once, best first, without consuming them, and
+        // snapshot the top users for every grid value. As in
+        // Recommender.getTopMatches, ties are taken whole.
+        Map<Node, Double> top = new HashMap<>();
+        NavigableMap<Double, List<Node>> descending = scores.descendingMap();
+        Iterator<Map.Entry<Double, List<Node>>> it =
+                descending.entrySet().iterator();
+        for (int s = 0; s < numUsersGrid.length; s++) {
+            while (top.size() < numUsersGrid[s] && it.hasNext()) {
+                Map.Entry<Double, List<Node>> entry = it.next();
+                for (Node node : entry.getValue()) {
+                    top.put(node, entry.getKey());
+                }
+            }
+            double[] predicted = r.predict(user, itemIDs, top);
+            List<Integer> recommended = r.recommend(user, top.keySet(), k);
+            perUser[s][u] = new UserResult(actual, predicted, recommended,
+                    relevant, k);
+        }
+    }
+
+    private Result reduce(String fold, int numUsers, UserResult[] perUser,
+                          long elapsedNanos, long[] sortedLatencies) {
+        double squaredError = 0.0;
+        double absoluteError = 0.0;
+        long numRatings = 0;
+        double precision = 0.0;
+        double recall = 0.0;
+        double ndcg = 0.0;
+        int numRanked = 0;
+        for (UserResult result : perUser) {
+            squaredError += result.squaredError;
+            absoluteError += result.absoluteError;
+            numRatings += result.numRatings;
+            if (result.hasRelevant) {
+                precision += result.precision;
+                recall += result.recall;
+                ndcg += result.ndcg;
+                numRanked++;
+            }
+        }
+
+        Result result = new Result();
+        result.fold = fold;
+        result.numUsers = numUsers;
+        result.usersEvaluated = perUser.length;
+        result.rmse = numRatings == 0 ? 0.0
+                : Math.sqrt(squaredError / numRatings);
+        result.mae = numRatings == 0 ? 0.0 : absoluteError / numRatings;
+        result.precision = numRanked == 0 ? 0.0 : precision / numRanked;
+        result.recall = numRanked == 0 ? 0.0 : recall / numRanked;
+        result.ndcg = numRanked == 0 ? 0.0 : ndcg / numRanked;
+        result.usersPerSecond = elapsedNanos == 0 ? 0.0
+                : perUser.length * 1e9 / elapsedNanos;
+        result.p50Millis = percentile(sortedLatencies, 0.50);
+        result.p90Millis = percentile(sortedLatencies, 0.90);
+        result.p99Millis = percentile(sortedLatencies, 0.99);
+        result.maxMillis = sortedLatencies.length == 0 ? 0.0
+                : sortedLatencies[sortedLatencies.length - 1] / 1e6;
+        return result;
+    }
+
+    /**
+     * Returns a nearest-rank percentile of some sorted latencies.
+     *
+     * @param sorted  the latencies in nanoseconds, ascending
+     * @param q       the quantile, in (0, 1]
+     * @return        the percentile in milliseconds
+     */
+    private static double percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    /**
+     * This class holds the error sums and ranking metrics of one user.
+     */
+    private static class UserResult {
+        private double squaredError = 0.0;
+        private double absoluteError = 0.0;
+        private int numRatings;
+        private boolean hasRelevant;
+        private double precision = 0.0;
+        private double recall = 0.0;
+        private double ndcg = 0.0;
+
+        UserResult(double[] actual, double[] predicted,
+                   List<Integer> recommended, Set<Integer> relevant, int k) {
+            numRatings = actual.length;
+            for (int i = 0; i < actual.length; i++) {
+                double error = predicted[i] - actual[i];
+                squaredError += error * error;
+                absoluteError += Math.abs(error);
+            }
+
+            hasRelevant = !relevant.isEmpty();
+            if (!hasRelevant) {
+                return;
+            }
+            int hits = 0;
+            double dcg = 0.0;
+            int rank = 0;
+            for (int itemID : recommended) {
+                if (relevant.contains(itemID)) {
+                    hits++;
+                    dcg += 1 / log2(rank + 2);
+                }
+                rank++;
+            }
+            double idcg = 0.0;
+            for (int i = 0; i < Math.min(k, relevant.size()); i++) {
+                idcg += 1 / log2(i + 2);
+            }
+            precision = (double) hits / k;
+            recall = (double) hits / relevant.size();
+            ndcg = dcg / idcg;
+        }
+
+        private static double log2(double x) {
+            return Math.log(x) / Math.log(2);
+        }
+    }
+
+    /**
+     * This class holds the metrics of one fold at one numUsers setting.
+     * Precision, recall and NDCG are averaged over the users with at least
+     * one relevant held-out rating. Throughput and latencies cover all
+     * settings of the fold at once, since they share the scoring work.
+     */
+    public static class Result {
+        private String fold;
+        private int numUsers;
+        private int usersEvaluated;
+        private double rmse;
+        private double mae;
+        private double precision;
+        private double recall;
+        private double ndcg;
+        private double usersPerSecond;
+        private double p50Millis;
+        private double p90Millis;
+        private double p99Millis;
+        private double maxMillis;
+
+        public String getFold() {
+            return fold;
+        }
+
+        public int getNumUsers() {
+            return numUsers;
+        }
+
+        public int getUsersEvaluated() {
+            return usersEvaluated;
+        }
+
+        public double getRMSE() {
+            return rmse;
+        }
+
+        public double getMAE() {
+            return mae;
+        }
+
+        public double getPrecision() {
+            return precision;
+        }
+
+        public double getRecall() {
+            return recall;
+        }
+
+        public double getNDCG() {
+            return ndcg;
+        }
+
+        public double getUsersPerSecond() {
+            return usersPerSecond;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-4s %6d %7.4f %7.4f %7.4f %7.4f %7.4f "
+                    + "%8.1f %7.2f %7.2f %7.2f %7.2f", fold, numUsers, rmse,
+                    mae, precision, recall, ndcg, usersPerSecond, p50Millis,
+                    p90Millis, p99Millis, maxMillis);
+        }
+    }
+
+    /**
+     * Evaluates every fold with Pearson scores and prints a table.
+     *
+     * @param args  the numUsers grid; default 10 25 50 75 100
+     */
+    public static void main(String[] args) {
+        int[] grid = args.length == 0 ? new int[]{10, 25, 50, 75, 100}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        Evaluator evaluator = new Evaluator(Similarity.PEARSON, grid, 10, 4);
+        System.out.println(String.format("%-4s %6s %7s %7s %7s %7s %7s "
+                + "%8s %7s %7s %7s %7s", "fold", "users", "RMSE", "MAE",
+                "P@10", "R@10", "NDCG@10", "users/s", "p50ms", "p90ms",
+                "p99ms", "maxms"));
+        for (Result result : evaluator.evaluateAll()) {
+            System.out.println(result);
+        }
+    }
+}
@@ -1,14 +1,9 @@
 package engine;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
-
 /**
  * This class provides implementations of the various algorithms
- * dealing with flow in the Graph Toolkit, including Edmonds-Karp.
+ * dealing with flow in the Graph Toolkit, including Dinic's algorithm
+ * and push-relabel.
  *
  */
 class Flow {
@@ -18,106 +13,41 @@ class Flow {
     }
 
     /**
-     * Implement the Ford-Fulkerson algorithm for finding maximum flow on a
-     * network.
+     * Finds the maximum flow on a network, using edge weights as
+     * capacities. Parallel edges add up, and capacities may be fractional.
+     * @see FlowNetwork
      *
-     * @param g   The graph to find
-     * @param src the starting node
-     * @param tgt the ending node
-     * @return the maximum flow from src -> tgt on the graph g
+     * @param ig        the indexed graph
+     * @param src       the index of the source node
+     * @param tgt       the index of the sink node
+     * @param algorithm the algorithm to run
+     * @param event     receives the Dinic phases and the arcs scanned, or
+     *                  null
+     * @return the maximum flow from src -> tgt on the graph
      */
-    static int getMaxFlow(Graph g, Node src, Node tgt) {
-        Graph newG = biDirectGraph(g);
-        src = newG.getNodeByID(src.getID());
-        tgt = newG.getNodeByID(tgt.getID());
-        List<Node> path = Search.bfs(newG, src, tgt, true);
-
-        while (!path.isEmpty()) {
-            List<Edge> edgePath = getEdgesFromNodes(newG, path);
-            Collections.reverse(path);
-            List<Edge> revEdgePath = getEdgesFromNodes(newG, path);
-            Collections.reverse(revEdgePath);
-            List<Integer> residuals = new ArrayList<>();
-            for (Edge e : edgePath) {
-                residuals.add((int) e.getWeight() - e.getFlow());
-            }
-
-            int flow = Collections.min(residuals);
-
-            for (int i = 0; i < path.size() - 1; i++) {
-                Edge e = edgePath.get(i);
-                Edge revE = revEdgePath.get(i);
-                e.setFlow(e.getFlow() + flow);
-                revE.setFlow(revE.getFlow() - flow);
-            }
-
-            path = Search.bfs(newG, src, tgt, true);
+    static double getMaxFlow(IndexedGraph ig, int src, int tgt,
+                             MaxFlowAlgorithm algorithm,
+                             AlgorithmEvent event) {
+        if (src == tgt) {
+            throw new IllegalArgumentException("Source and sink are equal");
         }
 
-        int maxFlow = 0;
-        for (Edge e : src.getEdges()) {
-            maxFlow += e.getFlow();
+        FlowNetwork network = new FlowNetwork(ig);
+        double flow;
+        switch (algorithm) {
+            case DINIC:
+                flow = network.dinic(src, tgt, Double.POSITIVE_INFINITY);
+                break;
+            case PUSH_RELABEL:
+                flow = network.pushRelabel(src, tgt);
+                break;
+            default:
+                throw new IllegalArgumentException();
         }
-
-        return maxFlow;
-    }
-
-    /**
-     * Takes a list of nodes that forms a path, and creates a corresponding list
-     * of edges for that same path.
-     *
-     * @param nodes the path of nodes
-     * @return the path of edges
-     */
-    private static List<Edge> getEdgesFromNodes(Graph g, List<Node> nodes) {
-        List<Edge> edgePath = new LinkedList<>();
-
-        for (int i = 0; i < nodes.size() - 1; i++) {
-            Node src = g.getNodeByID(nodes.get(i).getID());
-            Node tgt = g.getNodeByID(nodes.get(i + 1).getID());
-
-            Set<Edge> edges = src.getEdges();
-
-            for (Edge e : edges) {
-                // Let's just check for equality by comparing IDs
-                if (tgt.getID() == e.getTgt().getID()) {
-                    edgePath.add(e);
-                    break;
-                }
-            }
-        }
-
-        return edgePath;
-    }
-
-    /**
-     * Bidirects a graph (for every directed edge, adds the backwards edge).
-     *
-     * @param g the graph
-     * @return a bidirected version of g
-     */
-    private static Graph biDirectGraph(Graph g) {
-        Graph newG = g.copyOf(true, 0);
-        mergeGraphs(newG, g);
-        return newG;
-    }
-
-    /**
-     * Merges two graphs, g1 and g2, into g1
-     *
-     * @param g1 the first graph
-     * @param g2 the second graph
-     */
-    private static void mergeGraphs(Graph g1, Graph g2) {
-        // Add all nodes and edges from g2 into g1
-        for (Node n : g2.getAllNodes()) {
-            Set<Edge> edges = n.getEdges();
-            for (Edge e : edges) {
-                int srcID = e.getSrc().getID();
-                int tgtID = e.getTgt().getID();
-
-                g1.addEdge(srcID, tgtID, e.getWeight());
-            }
+        if (event != null) {
+            event.iterations = network.phases;
+            event.edgesTouched = network.arcScans;
         }
+        return flow;
     }
 }
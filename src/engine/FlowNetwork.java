@@ -0,0 +1,458 @@
+package engine;
+
+/**
+ * This class provides a residual flow network stored in flat arrays, along
+ * with Dinic's algorithm and highest-label push-relabel for maximum flow.
+ *
+ * <p>
+ *     Every edge (u, v) of the original graph becomes a forward arc from u
+ *     to v holding its capacity, and a reverse arc from v to u holding 0.
+ *     Arcs are grouped by tail in CSR form (the arcs out of u are
+ *     first[u] to first[u + 1] - 1) and rev[a] is the index of the arc
+ *     paired with a. Pushing f units along a subtracts f from res[a] and
+ *     adds f to res[rev[a]], so the network always holds a valid residual
+ *     graph and can be solved again later.
+ *
+ */
+class FlowNetwork {
+    // Residual capacities at or below this are treated as saturated
+    static final double EPS = 1e-12;
+
+    final int n;
+    // Arcs out of node u are first[u] .. first[u + 1] - 1
+    final int[] first;
+    // Arc to target node
+    final int[] head;
+    // Arc to the index of its paired arc
+    final int[] rev;
+    // Arc to the original capacity (0 for reverse arcs)
+    final double[] cap;
+    // Arc to the residual capacity
+    final double[] res;
+    // Arc to whether it comes from an edge of the graph
+    final boolean[] forward;
+
+    // The work of the last dinic or pushRelabel call: Dinic phases, and a
+    // bound on the arcs scanned
+    int phases;
+    long arcScans;
+
+    // Scratch space shared by the algorithms
+    private final int[] level;
+    private final int[] current;
+    private final int[] queue;
+
+    /**
+     * Builds the residual network of the given graph with zero flow, using
+     * edge weights as capacities.
+     *
+     * @param ig  the indexed graph
+     */
+    FlowNetwork(IndexedGraph ig) {
+        n = ig.n;
+        int m = ig.targets.length;
+        first = new int[n + 1];
+        head = new int[2 * m];
+        rev = new int[2 * m];
+        cap = new double[2 * m];
+        res = new double[2 * m];
+        forward = new boolean[2 * m];
+        level = new int[n];
+        current = new int[n];
+        queue = new int[n];
+
+        // Count the arcs out of every node, forward and reverse
+        for (int u = 0; u < n; u++) {
+            first[u + 1] += ig.offsets[u + 1] - ig.offsets[u];
+            for (int e = ig.offsets[u]; e < ig.offsets[u + 1]; e++) {
+                first[ig.targets[e] + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            first[u + 1] += first[u];
+        }
+
+        int[] fill = new int[n];
+        System.arraycopy(first, 0, fill, 0, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = ig.offsets[u]; e < ig.offsets[u + 1]; e++) {
+                int v = ig.targets[e];
+                double c = ig.weights[e];
+                if (c < 0) {
+                    throw new IllegalArgumentException(
+                            "Negative capacity on edge from " + ig.ids[u]);
+                }
+                int a = fill[u]++;
+                int b = fill[v]++;
+                head[a] = v;
+                head[b] = u;
+                rev[a] = b;
+                rev[b] = a;
+                cap[a] = c;
+                res[a] = c;
+                forward[a] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the tail of the given arc.
+     *
+     * @param a  the arc
+     * @return   the node the arc leaves
+     */
+    int tail(int a) {
+        return head[rev[a]];
+    }
+
+    /**
+     * Returns the net flow currently leaving the given node.
+     *
+     * @param u  the node
+     * @return   the flow out of u minus the flow into u
+     */
+    double netOutflow(int u) {
+        double total = 0.0;
+        for (int a = first[u]; a < first[u + 1]; a++) {
+            total += cap[a] - res[a];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the flow on the given arc.
+     *
+     * @param a  the arc
+     * @return   the flow, negative on reverse arcs
+     */
+    double flow(int a) {
+        return cap[a] - res[a];
+    }
+
+    /**
+     * Marks every node reachable from s in the residual network. After a
+     * maximum flow these nodes are the source side of a minimum cut.
+     *
+     * @param s  the source node
+     * @return   whether each node is reachable from s
+     */
+    boolean[] residualReach(int s) {
+        boolean[] seen = new boolean[n];
+        seen[s] = true;
+        int qHead = 0;
+        int qTail = 0;
+        queue[qTail++] = s;
+        while (qHead < qTail) {
+            int u = queue[qHead++];
+            for (int a = first[u]; a < first[u + 1]; a++) {
+                int v = head[a];
+                if (!seen[v] && res[a] > EPS) {
+                    seen[v] = true;
+                    queue[qTail++] = v;
+                }
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Implement Dinic's algorithm, augmenting the current flow by at most
+     * limit units from s to t. Each phase builds the BFS level graph of the
+     * residual network and saturates it with a blocking flow found by an
+     * iterative DFS that never revisits a dead arc. This runs in O(V^2 E),
+     * and in O(E sqrt(V)) on unit-capacity graphs such as bipartite
+     * matchings.
+     *
+     * @param s      the source node
+     * @param t      the sink node
+     * @param limit  the most flow to add
+     * @return       the amount of flow added
+     */
+    double dinic(int s, int t, double limit) {
+        if (s == t) {
+            return limit;
+        }
+
+        double total = 0.0;
+        int[] path = new int[n];
+        phases = 0;
+        while (total < limit && buildLevels(s, t)) {
+            // The BFS and the blocking flow each scan every arc at most once
+            phases++;
+            System.arraycopy(first, 0, current, 0, n);
+            double f;
+            while (total < limit
+                    && (f = blockingPath(s, t, limit - total, path)) > 0) {
+                total += f;
+            }
+        }
+        arcScans = 2L * phases * head.length;
+        return total;
+    }
+
+    /**
+     * Computes BFS levels from s over arcs with residual capacity.
+     *
+     * @param s  the source node
+     * @param t  the sink node
+     * @return   true if t can still be reached
+     */
+    private boolean buildLevels(int s, int t) {
+        for (int u = 0; u < n; u++) {
+            level[u] = -1;
+        }
+        level[s] = 0;
+        int qHead = 0;
+        int qTail = 0;
+        queue[qTail++] = s;
+        while (qHead < qTail) {
+            int u = queue[qHead++];
+            for (int a = first[u]; a < first[u + 1]; a++) {
+                int v = head[a];
+                if (level[v] < 0 && res[a] > EPS) {
+                    level[v] = level[u] + 1;
+                    queue[qTail++] = v;
+                }
+            }
+        }
+        return level[t] >= 0;
+    }
+
+    /**
+     * Finds one augmenting path in the level graph, following and advancing
+     * the current-arc pointers, and pushes its bottleneck along it. Nodes
+     * found to be dead ends are removed from the level graph.
+     *
+     * @param s      the source node
+     * @param t      the sink node
+     * @param limit  the most flow to push
+     * @param path   scratch space for the arcs of the path
+     * @return       the flow pushed, or 0 if the level graph is blocked
+     */
+    private double blockingPath(int s, int t, double limit, int[] path) {
+        int depth = 0;
+        int u = s;
+        while (true) {
+            if (u == t) {
+                double f = limit;
+                for (int i = 0; i < depth; i++) {
+                    f = Math.min(f, res[path[i]]);
+                }
+                for (int i = 0; i < depth; i++) {
+                    res[path[i]] -= f;
+                    res[rev[path[i]]] += f;
+                }
+                return f;
+            }
+
+            int end = first[u + 1];
+            int a = current[u];
+            while (a < end && (res[a] <= EPS
+                    || level[head[a]] != level[u] + 1)) {
+                a++;
+            }
+            current[u] = a;
+
+            if (a < end) {
+                // Advance
+                path[depth++] = a;
+                u = head[a];
+            } else {
+                // Retreat, and never come back to this node in this phase
+                level[u] = -1;
+                if (depth == 0) {
+                    return 0.0;
+                }
+                u = tail(path[--depth]);
+                current[u]++;
+            }
+        }
+    }
+
+    /**
+     * Implement the highest-label push-relabel algorithm, augmenting the
+     * current flow from s to t to a maximum flow. This runs in
+     * O(V^2 sqrt(E)).
+     *
+     * <p>
+     *     Heights start as exact BFS distances to t. Active nodes (those
+     *     with excess) are kept in doubly-linked buckets by height and the
+     *     highest one is always discharged first. When a relabel empties a
+     *     height below n, every node above that gap can no longer reach t,
+     *     so they are lifted straight to n + 1 and their excess flows back
+     *     to s. The network therefore ends up holding a valid flow, not just
+     *     a preflow.
+     *
+     * @param s  the source node
+     * @param t  the sink node
+     * @return   the amount of flow added
+     */
+    double pushRelabel(int s, int t) {
+        if (s == t) {
+            throw new IllegalArgumentException();
+        }
+
+        int maxHeight = 2 * n + 1;
+        int[] height = level;
+        double[] excess = new double[n];
+        int[] count = new int[maxHeight + 1];
+        int[] bucket = new int[maxHeight + 1];
+        int[] next = new int[n];
+        int[] prev = new int[n];
+        for (int h = 0; h <= maxHeight; h++) {
+            bucket[h] = -1;
+        }
+        double before = netOutflow(s);
+        long relabelScans = 0;
+
+        // Exact distance labels from a reverse BFS out of t
+        for (int u = 0; u < n; u++) {
+            height[u] = n;
+        }
+        height[t] = 0;
+        int qHead = 0;
+        int qTail = 0;
+        queue[qTail++] = t;
+        while (qHead < qTail) {
+            int v = queue[qHead++];
+            for (int a = first[v]; a < first[v + 1]; a++) {
+                int u = head[a];
+                if (height[u] == n && u != t && res[rev[a]] > EPS) {
+                    height[u] = height[v] + 1;
+                    queue[qTail++] = u;
+                }
+            }
+        }
+        height[s] = n;
+        for (int u = 0; u < n; u++) {
+            if (height[u] < n) {
+                count[height[u]]++;
+            }
+        }
+        System.arraycopy(first, 0, current, 0, n);
+
+        // Saturate every arc out of the source
+        int maxActive = 0;
+        for (int a = first[s]; a < first[s + 1]; a++) {
+            double f = res[a];
+            if (f > EPS) {
+                int v = head[a];
+                res[a] = 0.0;
+                res[rev[a]] += f;
+                if (v != t && v != s && excess[v] <= EPS) {
+                    addActive(bucket, next, prev, height[v], v);
+                    maxActive = Math.max(maxActive, height[v]);
+                }
+                excess[v] += f;
+            }
+        }
+
+        while (maxActive >= 0) {
+            int u = bucket[maxActive];
+            if (u < 0) {
+                maxActive--;
+                continue;
+            }
+            removeActive(bucket, next, prev, maxActive, u);
+
+            // Discharge u
+            while (excess[u] > EPS) {
+                int a = current[u];
+                if (a == first[u + 1]) {
+                    // Relabel
+                    relabelScans += first[u + 1] - first[u];
+                    int old = height[u];
+                    int lowest = maxHeight;
+                    for (int b = first[u]; b < first[u + 1]; b++) {
+                        if (res[b] > EPS) {
+                            lowest = Math.min(lowest, height[head[b]] + 1);
+                        }
+                    }
+                    current[u] = first[u];
+                    if (old < n && --count[old] == 0) {
+                        // Gap: nothing above old can reach t any more
+                        if (liftAboveGap(old, height, count, bucket, next,
+                                prev, excess, s, t)) {
+                            maxActive = Math.max(maxActive, n + 1);
+                        }
+                        lowest = Math.max(lowest, n + 1);
+                    }
+                    height[u] = lowest;
+                    if (lowest < n) {
+                        count[lowest]++;
+                    }
+                    continue;
+                }
+
+                int v = head[a];
+                if (res[a] > EPS && height[u] == height[v] + 1) {
+                    double f = Math.min(excess[u], res[a]);
+                    res[a] -= f;
+                    res[rev[a]] += f;
+                    excess[u] -= f;
+                    if (v != s && v != t && excess[v] <= EPS) {
+                        addActive(bucket, next, prev, height[v], v);
+                        maxActive = Math.max(maxActive, height[v]);
+                    }
+                    excess[v] += f;
+                } else {
+                    current[u]++;
+                }
+            }
+        }
+
+        // The BFS and the source scan, then every relabel scans the arcs of
+        // its node and moves that node's current arc across them again
+        phases = 0;
+        arcScans = 2L * head.length + 2 * relabelScans;
+        return netOutflow(s) - before;
+    }
+
+    /**
+     * Lifts every node with a height between gap and n to n + 1, moving
+     * the active ones to their new bucket.
+     *
+     * @return true if any active node was moved
+     */
+    private boolean liftAboveGap(int gap, int[] height, int[] count,
+                              int[] bucket, int[] next, int[] prev,
+                              double[] excess, int s, int t) {
+        boolean moved = false;
+        for (int v = 0; v < n; v++) {
+            int h = height[v];
+            if (h > gap && h < n && v != s && v != t) {
+                count[h]--;
+                if (excess[v] > EPS) {
+                    removeActive(bucket, next, prev, h, v);
+                    addActive(bucket, next, prev, n + 1, v);
+                    moved = true;
+                }
+                height[v] = n + 1;
+                current[v] = first[v];
+            }
+        }
+        return moved;
+    }
+
+    private static void addActive(int[] bucket, int[] next, int[] prev,
+                                  int h, int v) {
+        next[v] = bucket[h];
+        prev[v] = -1;
+        if (bucket[h] >= 0) {
+            prev[bucket[h]] = v;
+        }
+        bucket[h] = v;
+    }
+
+    private static void removeActive(int[] bucket, int[] next, int[] prev,
+                                     int h, int v) {
+        if (prev[v] >= 0) {
+            next[prev[v]] = next[v];
+        } else {
+            bucket[h] = next[v];
+        }
+        if (next[v] >= 0) {
+            prev[next[v]] = prev[v];
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class provides a maximum flow problem that stays solved while its
+ * capacities change.
+ *
+ * <p>
+ *     The session keeps the residual network of its last solve. When a
+ *     capacity goes up, the old flow is still feasible and the next solve
+ *     only looks for the new augmenting paths. When a capacity drops below
+ *     the flow on that edge, the surplus is first rerouted around the edge
+ *     and, if that is not possible, cancelled back to the source and sink;
+ *     everything else is left in place. Either way, a re-solve costs about
+ *     as much as the change, not as much as the whole problem.
+ *
+ * <p>
+ *     The chosen algorithm only computes the first maximum flow. Re-solves
+ *     always use Dinic's algorithm, which augments the existing flow along
+ *     the few new paths; push-relabel would rebuild its distance labels
+ *     and preflow over the whole network on every call.
+ *
+ * <p>
+ *     A FlowSession is not thread-safe.
+ *
+ */
+public class FlowSession {
+    private final IndexedGraph ig;
+    private final FlowNetwork network;
+    private final int src;
+    private final int tgt;
+    private final MaxFlowAlgorithm algorithm;
+    private boolean solved = false;
+    private boolean solvedOnce = false;
+
+    /**
+     * Creates a session for the given network, with zero flow.
+     *
+     * @param ig         the indexed graph, with edge weights as capacities
+     * @param src        the index of the source node
+     * @param tgt        the index of the sink node
+     * @param algorithm  the algorithm used for the first solve
+     */
+    FlowSession(IndexedGraph ig, int src, int tgt,
+                MaxFlowAlgorithm algorithm) {
+        if (src == tgt) {
+            throw new IllegalArgumentException("Source and sink are equal");
+        }
+
+        this.ig = ig;
+        this.network = new FlowNetwork(ig);
+        this.src = src;
+        this.tgt = tgt;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Returns the maximum flow for the current capacities, re-solving from
+     * the previous flow if anything changed.
+     *
+     * @return the maximum flow from the source to the sink
+     */
+    public double getMaxFlow() {
+        solve();
+        return network.netOutflow(src);
+    }
+
+    /**
+     * Returns the flow currently on the edges from one Node to another.
+     *
+     * @param srcID  the ID of the edge's source Node
+     * @param tgtID  the ID of the edge's target Node
+     * @return       the flow on those edges in the maximum flow
+     */
+    public double getFlow(int srcID, int tgtID) {
+        solve();
+        double total = 0.0;
+        for (int a : findArcs(srcID, tgtID)) {
+            total += network.flow(a);
+        }
+        return total;
+    }
+
+    /**
+     * Changes the capacity of the edge from one Node to another. If there
+     * are parallel edges between them, their combined capacity is set.
+     *
+     * @param srcID     the ID of the edge's source Node
+     * @param tgtID     the ID of the edge's target Node
+     * @param capacity  the new, non-negative capacity
+     */
+    public void setCapacity(int srcID, int tgtID, double capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity");
+        }
+
+        List<Integer> arcs = findArcs(srcID, tgtID);
+        if (arcs.isEmpty()) {
+            throw new IllegalArgumentException("No such edge");
+        }
+
+        // All the capacity goes on the first parallel edge
+        for (int a : arcs) {
+            setArcCapacity(a, capacity);
+            capacity = 0.0;
+        }
+    }
+
+    /**
+     * Returns the source side of a minimum s-t cut: the Nodes that can
+     * still be reached from the source in the residual network.
+     *
+     * @return the IDs of the Nodes on the source side of the cut
+     */
+    public Set<Integer> getSourceSide() {
+        solve();
+        boolean[] side = network.residualReach(src);
+        Set<Integer> ids = new HashSet<>();
+        for (int v = 0; v < ig.n; v++) {
+            if (side[v]) {
+                ids.add(ig.ids[v]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the edges of a minimum s-t cut, whose capacities add up to
+     * the maximum flow.
+     *
+     * @return the cut edges, each as {srcID, tgtID}
+     */
+    public List<int[]> getCutEdges() {
+        solve();
+        boolean[] side = network.residualReach(src);
+        List<int[]> edges = new ArrayList<>();
+        for (int u = 0; u < ig.n; u++) {
+            if (!side[u]) {
+                continue;
+            }
+            for (int a = network.first[u]; a < network.first[u + 1]; a++) {
+                int v = network.head[a];
+                if (network.forward[a] && !side[v] && network.cap[a] > 0) {
+                    edges.add(new int[]{ig.ids[u], ig.ids[v]});
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Augments the current flow to a maximum flow, if it is out of date.
+     */
+    private void solve() {
+        if (solved) {
+            return;
+        }
+
+        if (solvedOnce) {
+            network.dinic(src, tgt, Double.POSITIVE_INFINITY);
+        } else {
+            switch (algorithm) {
+                case DINIC:
+                    network.dinic(src, tgt, Double.POSITIVE_INFINITY);
+                    break;
+                case PUSH_RELABEL:
+                    network.pushRelabel(src, tgt);
+                    break;
+                default:
+                    throw new IllegalArgumentException();
+            }
+            solvedOnce = true;
+        }
+        solved = true;
+    }
+
+    /**
+     * Sets the capacity of one forward arc, repairing the flow if it now
+     * carries more than the new capacity.
+     *
+     * @param a         the arc
+     * @param capacity  its new capacity
+     */
+    private void setArcCapacity(int a, double capacity) {
+        double[] res = network.res;
+        double flow = network.flow(a);
+        network.cap[a] = capacity;
+        solved = false;
+        if (flow <= capacity) {
+            res[a] = capacity - flow;
+            return;
+        }
+
+        // Cut the flow on a down to capacity. This leaves a surplus at its
+        // tail u and a shortfall at its head v.
+        double surplus = flow - capacity;
+        res[a] = 0.0;
+        res[network.rev[a]] -= surplus;
+        int u = network.tail(a);
+        int v = network.head[a];
+
+        // First try to send the surplus from u to v some other way
+        surplus -= network.dinic(u, v, surplus);
+        if (surplus > FlowNetwork.EPS) {
+            // Whatever is left must be cancelled: it goes back from u to
+            // the source and is withdrawn from the sink to v
+            network.dinic(u, src, surplus);
+            network.dinic(tgt, v, surplus);
+        }
+    }
+
+    /**
+     * Finds the forward arcs for the edges from one Node to another.
+     *
+     * @param srcID  the ID of the edge's source Node
+     * @param tgtID  the ID of the edge's target Node
+     * @return       the matching arcs
+     */
+    private List<Integer> findArcs(int srcID, int tgtID) {
+        int u = ig.indexOf(srcID);
+        int v = ig.indexOf(tgtID);
+        if (u < 0 || v < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        List<Integer> arcs = new ArrayList<>();
+        for (int a = network.first[u]; a < network.first[u + 1]; a++) {
+            if (network.forward[a] && network.head[a] == v) {
+                arcs.add(a);
+            }
+        }
+        return arcs;
+    }
+}
@@ -4,8 +4,14 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Class for allowing the user to interact with the Recommendation
@@ -13,8 +19,19 @@ import java.util.TreeMap;
  * the score metric, choosing the number of similar users, and 
  * choosing the number of recommendations to calculate.
  *
+ * <p>
+ *     Data sets are loaded once, in the background, and their Recommenders
+ *     are kept for later runs. Runs also happen in the background, so the
+ *     window stays responsive, and can be cancelled.
+ *
  */
 public class GUI implements Runnable {
+    // The loaded Recommenders by data set; only touched on the EDT
+    private final Map<String, Recommender> models = new HashMap<>();
+    private SwingWorker<Recommender, Void> loader = null;
+    private SwingWorker<String, Void> query = null;
+    private long queryStart = 0;
+
     /**
      * Displays the GUI.
      */
@@ -27,7 +44,7 @@ public class GUI implements Runnable {
         frame.setLayout(new GridLayout(2, 1));
         
         final JPanel elements = new JPanel();
-        elements.setLayout(new GridLayout(3, 1));
+        elements.setLayout(new GridLayout(4, 1));
         
         final JPanel datasetPane = new JPanel();
         datasetPane.setLayout(new FlowLayout());
@@ -66,7 +83,27 @@ public class GUI implements Runnable {
         input.add(rec);
         input.add(go);
         elements.add(input);
+
+        final JPanel statusPane = new JPanel();
+        statusPane.setLayout(new FlowLayout());
+        final JProgressBar progress = new JProgressBar(0, 100);
+        progress.setStringPainted(true);
+        final JLabel status = new JLabel("", LEFT);
+        final JButton cancel = new JButton("Cancel");
+        cancel.setEnabled(false);
+        statusPane.add(progress);
+        statusPane.add(status);
+        statusPane.add(cancel);
+        elements.add(statusPane);
         frame.add(elements);
+
+        // Shows the running time of the current query
+        final Timer clock = new Timer(100, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                status.setText(String.format("Running... %.1f s",
+                        (System.nanoTime() - queryStart) / 1e9));
+            }
+        });
         
         final JTextArea results = new JTextArea("", 10, 45);
         final JScrollBar vert = new JScrollBar(JScrollBar.VERTICAL);
@@ -79,57 +116,168 @@ public class GUI implements Runnable {
                 String newText = (String)dataset.getSelectedItem();
                 dataset.setSelectedItem(newText);
                 updateJSpinners(newText, user);
+                load(newText, go, progress, status);
             }
         });
         
         go.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                Recommender r = null;
-                String data = (String)dataset.getSelectedItem();
-                switch (data) {
-                    case "MovieLens" :
-                        Graph g = DataReader.readMovieLensData();
-                        r = new Recommender(g);
-                        break;
-                    default :
-                        break;
+                final Recommender r =
+                        models.get((String)dataset.getSelectedItem());
+                if (r == null || query != null) {
+                    return;
                 }
                 
+                final int userID = (int)user.getValue();
+                final int numSim = (int)sim.getValue();
+                final int numRec = (int)rec.getValue();
+                final String metric = (String)metrics.getSelectedItem();
                 
-                int userID = (int)user.getValue();
-                int numSim = (int)sim.getValue();
-                int numRec = (int)rec.getValue();
-                
-                TreeMap<Double, List<Node>> scores;
-                String metric = (String)metrics.getSelectedItem(); 
-                switch (metric) {
-                    case "Jaccard" :
-                        scores = r.getJaccardScores(userID);
-                        break;
-                    case "Pearson" :
-                        scores = r.getPearsonScores(userID);
-                        break;
-                    default:
-                        throw new IllegalArgumentException();
-                }
+                query = new SwingWorker<String, Void>() {
+                    @Override
+                    protected String doInBackground() throws Exception {
+                        TreeMap<Double, List<Node>> scores;
+                        switch (metric) {
+                            case "Jaccard" :
+                                scores = r.getJaccardScores(userID);
+                                break;
+                            case "Pearson" :
+                                scores = r.getPearsonScores(userID);
+                                break;
+                            default:
+                                throw new IllegalArgumentException();
+                        }
+                        if (isCancelled()) {
+                            return null;
+                        }
+                        List<Integer> recommended = r.collabFilter(userID,
+                                scores, numSim, numRec);
+                        if (isCancelled()) {
+                            return null;
+                        }
+                        return r.getMovieLensNames(userID, recommended);
+                    }
+
+                    @Override
+                    protected void done() {
+                        clock.stop();
+                        query = null;
+                        go.setEnabled(true);
+                        cancel.setEnabled(false);
+                        double elapsed = (System.nanoTime() - queryStart) / 1e9;
+                        try {
+                            results.setText(get());
+                            results.setEditable(false);
+                            status.setText(String.format("Done in %.2f s",
+                                    elapsed));
+                        } catch (CancellationException exp) {
+                            status.setText(String.format(
+                                    "Cancelled after %.2f s", elapsed));
+                        } catch (InterruptedException | ExecutionException exp) {
+                            exp.printStackTrace();
+                            status.setText("Failed: " + exp.getCause());
+                        }
+                    }
+                };
                 
-                try {
-                    results.setText(r.getMovieLensNames(userID, r.collabFilter(userID,
-                            scores, numSim, numRec)));
-                    results.setEditable(false);
-                } 
-                catch (Exception exp) {
-                    exp.printStackTrace();
+                queryStart = System.nanoTime();
+                go.setEnabled(false);
+                cancel.setEnabled(true);
+                status.setText("Running...");
+                clock.start();
+                query.execute();
+            }
+        });
+
+        cancel.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (query != null) {
+                    // The scoring loops do not check for interruption; the
+                    // worker finishes its current step and its result is
+                    // dropped
+                    query.cancel(true);
                 }
             }
         });
         
+        load((String)dataset.getSelectedItem(), go, progress, status);
         
         frame.pack();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setVisible(true);
     }
     
+    /**
+     * Loads a data set and its Recommender in the background, unless it is
+     * already loaded. Run is disabled until it is ready.
+     *
+     * @param data      the name of the data set
+     * @param go        the Run button
+     * @param progress  shows the loading progress
+     * @param status    shows what is happening
+     */
+    private void load(final String data, final JButton go,
+                      final JProgressBar progress, final JLabel status) {
+        if (models.containsKey(data)) {
+            go.setEnabled(query == null);
+            progress.setValue(100);
+            return;
+        }
+        if (loader != null) {
+            loader.cancel(true);
+        }
+
+        go.setEnabled(false);
+        progress.setValue(0);
+        status.setText("Loading " + data + "...");
+        final SwingWorker<Recommender, Void> worker =
+                new SwingWorker<Recommender, Void>() {
+            @Override
+            protected Recommender doInBackground() throws Exception {
+                switch (data) {
+                    case "MovieLens" :
+                        Graph g = DataReader.readMovieLensData();
+                        setProgress(60);
+                        Recommender r = new Recommender(g);
+                        setProgress(90);
+                        MovieLensCatalog.getDefault();
+                        setProgress(100);
+                        return r;
+                    default :
+                        throw new IllegalArgumentException();
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (loader != this) {
+                    // Superseded by another data set
+                    return;
+                }
+                loader = null;
+                try {
+                    models.put(data, get());
+                    go.setEnabled(query == null);
+                    status.setText(data + " loaded");
+                } catch (CancellationException e) {
+                    status.setText("");
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    status.setText("Failed to load " + data);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("progress".equals(e.getPropertyName())) {
+                    progress.setValue((Integer)e.getNewValue());
+                }
+            }
+        });
+        loader = worker;
+        worker.execute();
+    }
+
     private void updateJSpinners(String data, JSpinner user) {
         switch (data) {
             case "MovieLens" :
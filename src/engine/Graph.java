@@ -1,5 +1,7 @@
 package engine;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -10,7 +12,7 @@ import java.util.Set;
  * with a Set of Nodes and associated methods.
  *
  */
-public class Graph {
+public class Graph implements EdgeSink {
     // Map from ID to Node
     private Map<Integer, Node> nodes;
 
@@ -22,6 +24,7 @@ public class Graph {
         nodes.put(id, n);
     }
 
+    @Override
     public void addEdge(int srcID, int tgtID, double weight) {
         Node source = nodes.get(srcID);
         Node target = nodes.get(tgtID);
@@ -40,6 +43,15 @@ public class Graph {
         return new HashSet<>(nodes.values());
     }
 
+    /**
+     * Returns a read-only view of the Nodes, without copying them.
+     *
+     * @return an unmodifiable view of the Nodes in this Graph
+     */
+    Collection<Node> getNodeView() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+
     public Node getNodeByID(int id) {
         return nodes.get(id);
     }
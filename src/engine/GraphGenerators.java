@@ -0,0 +1,314 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * This class provides seeded generators of synthetic graphs for scaling
+ * tests. Every generator streams its edges straight into an EdgeSink, so
+ * nothing but the generator's own state is held in memory, and the same
+ * seed always produces the same edges in the same order.
+ *
+ * <p>
+ *     Unless stated otherwise, nodes are numbered from 0 and edge weights
+ *     are integers drawn uniformly from [1, 100].
+ *
+ */
+public final class GraphGenerators {
+    private static final int MAX_WEIGHT = 100;
+
+    private GraphGenerators() {
+        // This class should not be instantiated
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Generates an R-MAT graph with the Graph500 parameters
+     * a = 0.57, b = 0.19, c = 0.19.
+     * @see #rmat(int, long, double, double, double, long, EdgeSink)
+     *
+     * @param scale     the base-2 log of the number of nodes
+     * @param numEdges  the number of edges
+     * @param seed      the random seed
+     * @param sink      receives the edges
+     */
+    public static void rmat(int scale, long numEdges, long seed,
+                            EdgeSink sink) {
+        rmat(scale, numEdges, 0.57, 0.19, 0.19, seed, sink);
+    }
+
+    /**
+     * Generates an R-MAT (recursive Kronecker) graph on 2^scale nodes.
+     * Each edge picks one quadrant of the adjacency matrix with
+     * probabilities a, b, c and 1 - a - b - c, then recurses into it
+     * scale times. This gives the skewed degrees and community structure
+     * of web and social graphs. The high-degree nodes have low IDs.
+     * Duplicate edges and self-loops are emitted as generated.
+     *
+     * @param scale     the base-2 log of the number of nodes, in [1, 31)
+     * @param numEdges  the number of edges
+     * @param a         the probability of the top-left quadrant
+     * @param b         the probability of the top-right quadrant
+     * @param c         the probability of the bottom-left quadrant
+     * @param seed      the random seed
+     * @param sink      receives the edges
+     */
+    public static void rmat(int scale, long numEdges, double a, double b,
+                            double c, long seed, EdgeSink sink) {
+        if (scale < 1 || scale >= 31 || numEdges < 0 || a < 0 || b < 0
+                || c < 0 || a + b + c > 1 || sink == null) {
+            throw new IllegalArgumentException();
+        }
+
+        SplittableRandom rand = new SplittableRandom(seed);
+        double ab = a + b;
+        double abc = a + b + c;
+        for (long i = 0; i < numEdges; i++) {
+            int src = 0;
+            int tgt = 0;
+            for (int bit = scale - 1; bit >= 0; bit--) {
+                double r = rand.nextDouble();
+                if (r >= abc) {
+                    src |= 1 << bit;
+                    tgt |= 1 << bit;
+                } else if (r >= ab) {
+                    src |= 1 << bit;
+                } else if (r >= a) {
+                    tgt |= 1 << bit;
+                }
+            }
+            sink.addEdge(src, tgt, weight(rand));
+        }
+    }
+
+    /**
+     * Generates a Barabási-Albert preferential attachment graph. The first
+     * edgesPerNode nodes are seeds. Every later node adds edgesPerNode
+     * edges to distinct earlier nodes, picked with probability proportional
+     * to their current degree. Degrees follow a power law with exponent 3.
+     *
+     * <p>
+     *     Edges point from the new node to the old one. Degree-proportional
+     *     picks use the usual array of edge endpoints: a uniform pick from
+     *     it is a pick by degree. That array, 2 * edgesPerNode ints per
+     *     node, is the generator's only memory.
+     *
+     * @param numNodes      the number of nodes
+     * @param edgesPerNode  the edges added with every new node
+     * @param seed          the random seed
+     * @param sink          receives the edges
+     */
+    public static void barabasiAlbert(int numNodes, int edgesPerNode,
+                                      long seed, EdgeSink sink) {
+        if (edgesPerNode < 1 || numNodes <= edgesPerNode || sink == null) {
+            throw new IllegalArgumentException();
+        }
+
+        SplittableRandom rand = new SplittableRandom(seed);
+        long size = 2L * edgesPerNode * (numNodes - edgesPerNode);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many edges");
+        }
+        int[] endpoints = new int[(int) size];
+        int numEndpoints = 0;
+        int[] picked = new int[edgesPerNode];
+
+        for (int v = edgesPerNode; v < numNodes; v++) {
+            for (int k = 0; k < edgesPerNode; k++) {
+                int target;
+                if (v == edgesPerNode) {
+                    // No degrees yet: link to every seed
+                    target = k;
+                } else {
+                    do {
+                        target = endpoints[rand.nextInt(numEndpoints)];
+                    } while (contains(picked, k, target));
+                }
+                picked[k] = target;
+            }
+            for (int k = 0; k < edgesPerNode; k++) {
+                sink.addEdge(v, picked[k], weight(rand));
+                endpoints[numEndpoints++] = v;
+                endpoints[numEndpoints++] = picked[k];
+            }
+        }
+    }
+
+    /**
+     * Generates an Erdős-Rényi G(n, p) graph: each of the n(n - 1) possible
+     * directed edges between distinct nodes is present independently with
+     * probability p. Instead of flipping a coin per pair, the gap to the
+     * next present edge is drawn from the geometric distribution, so the
+     * cost is proportional to the number of edges, not to n^2.
+     *
+     * @param numNodes  the number of nodes
+     * @param p         the edge probability, in [0, 1]
+     * @param seed      the random seed
+     * @param sink      receives the edges
+     */
+    public static void erdosRenyi(int numNodes, double p, long seed,
+                                  EdgeSink sink) {
+        if (numNodes < 0 || !(p >= 0 && p <= 1) || sink == null) {
+            throw new IllegalArgumentException();
+        }
+        if (numNodes < 2 || p == 0) {
+            return;
+        }
+
+        SplittableRandom rand = new SplittableRandom(seed);
+        long pairs = (long) numNodes * (numNodes - 1);
+        double logQ = Math.log1p(-p);
+        long k = -1;
+        while (true) {
+            if (p == 1) {
+                k++;
+            } else {
+                double skip = Math.floor(Math.log1p(-rand.nextDouble())
+                        / logQ);
+                if (skip >= pairs - k) {
+                    break;
+                }
+                k += 1 + (long) skip;
+            }
+            if (k >= pairs) {
+                break;
+            }
+            int src = (int) (k / (numNodes - 1));
+            int tgt = (int) (k % (numNodes - 1));
+            // Skip the diagonal
+            if (tgt >= src) {
+                tgt++;
+            }
+            sink.addEdge(src, tgt, weight(rand));
+        }
+    }
+
+    /**
+     * Generates a road-like grid: node r * cols + c is joined to its four
+     * neighbors by edges in both directions, each pair with the same
+     * weight. Like a road network, the graph is planar with bounded
+     * degree and a diameter of rows + cols.
+     *
+     * @param rows  the number of rows
+     * @param cols  the number of columns
+     * @param seed  the random seed
+     * @param sink  receives the edges
+     */
+    public static void grid(int rows, int cols, long seed, EdgeSink sink) {
+        if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE
+                || sink == null) {
+            throw new IllegalArgumentException();
+        }
+
+        SplittableRandom rand = new SplittableRandom(seed);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = r * cols + c;
+                if (c + 1 < cols) {
+                    double w = weight(rand);
+                    sink.addEdge(v, v + 1, w);
+                    sink.addEdge(v + 1, v, w);
+                }
+                if (r + 1 < rows) {
+                    double w = weight(rand);
+                    sink.addEdge(v, v + cols, w);
+                    sink.addEdge(v + cols, v, w);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates a bipartite rating graph in the layout DataReader uses for
+     * MovieLens: users have IDs 1 to numUsers, items have IDs numUsers + 1
+     * to numUsers + numItems, and every edge goes from a user to an item,
+     * with a rating from 1 to 5 as its weight.
+     *
+     * <p>
+     *     Both sides are power-law. User i (by ID) rates about
+     *     numRatings / (i^exponent * H) distinct items, where H normalizes
+     *     the total to about numRatings. Each user's items are drawn by
+     *     popularity, item j with weight 1 / j^exponent. A rating is 3.5
+     *     plus a fixed per-item bias plus noise, rounded and clamped to 1-5,
+     *     so that items have a consistent quality for recommenders to find.
+     *
+     * @param numUsers    the number of users
+     * @param numItems    the number of items
+     * @param numRatings  the target total number of ratings
+     * @param exponent    the power-law exponent, at least 0 (0 is uniform)
+     * @param seed        the random seed
+     * @param sink        receives the ratings
+     */
+    public static void bipartiteRatings(int numUsers, int numItems,
+                                        long numRatings, double exponent,
+                                        long seed, EdgeSink sink) {
+        if (numUsers < 1 || numItems < 1 || numRatings < 0
+                || (long) numUsers + numItems > Integer.MAX_VALUE
+                || !(exponent >= 0) || sink == null) {
+            throw new IllegalArgumentException();
+        }
+
+        SplittableRandom rand = new SplittableRandom(seed);
+        double userNorm = 0.0;
+        for (int i = 1; i <= numUsers; i++) {
+            userNorm += Math.pow(i, -exponent);
+        }
+
+        // Cumulative item popularity, sampled by binary search
+        double[] popularity = new double[numItems];
+        double total = 0.0;
+        for (int j = 0; j < numItems; j++) {
+            total += Math.pow(j + 1, -exponent);
+            popularity[j] = total;
+        }
+
+        double[] bias = new double[numItems];
+        for (int j = 0; j < numItems; j++) {
+            bias[j] = 0.75 * rand.nextGaussian();
+        }
+
+        // The last user to rate every item, to keep each user's items
+        // distinct
+        int[] ratedBy = new int[numItems];
+        for (int i = 1; i <= numUsers; i++) {
+            long count = Math.round(numRatings * Math.pow(i, -exponent)
+                    / userNorm);
+            count = Math.max(1, Math.min(count, numItems));
+            long k = 0;
+            while (k < count) {
+                int item;
+                if (count > numItems / 2) {
+                    // Dense users would mostly draw repeats
+                    item = rand.nextInt(numItems);
+                } else {
+                    int j = Arrays.binarySearch(popularity,
+                            rand.nextDouble() * total);
+                    item = j < 0 ? Math.min(-j - 1, numItems - 1) : j;
+                }
+                if (ratedBy[item] == i) {
+                    continue;
+                }
+                ratedBy[item] = i;
+                k++;
+
+                long rating = Math.round(3.5 + bias[item]
+                        + rand.nextGaussian());
+                rating = Math.max(1, Math.min(5, rating));
+                sink.addEdge(i, numUsers + 1 + item, rating);
+            }
+        }
+    }
+
+    private static double weight(SplittableRandom rand) {
+        return 1 + rand.nextInt(MAX_WEIGHT);
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package engine;
+
+/**
+ * This interface provides read-only access to a graph whose nodes have
+ * dense indices, which is all that the storage-generic algorithms need.
+ *
+ * <p>
+ *     Every node has an index in [0, numNodes()), assigned in ascending
+ *     order of node ID, and its out-edges are read through a
+ *     NeighborCursor, sorted by target index. A storage is safe to read
+ *     from any number of threads at once, as long as each thread uses its
+ *     own cursor.
+ *
+ * <p>
+ *     Storages that hold resources outside the heap release them in
+ *     close(); for the others close() does nothing. A storage must not be
+ *     used after it is closed.
+ *
+ */
+public interface GraphStorage extends AutoCloseable {
+    /**
+     * Returns the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    int numNodes();
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges
+     */
+    long numEdges();
+
+    /**
+     * Returns the ID of a node.
+     *
+     * @param v  the index of the node
+     * @return   its ID
+     */
+    int getID(int v);
+
+    /**
+     * Returns the index of the node with the given ID.
+     *
+     * @param id  the node ID
+     * @return    its index, or -1 if there is no such node
+     */
+    int indexOf(int id);
+
+    /**
+     * Returns the number of edges out of a node.
+     *
+     * @param v  the index of the node
+     * @return   its out-degree
+     */
+    int getOutDegree(int v);
+
+    /**
+     * Creates a cursor over the out-edges of this storage's nodes. A cursor
+     * can be reset to any node and reused, so one per thread is enough.
+     *
+     * @return a new cursor
+     */
+    NeighborCursor cursor();
+
+    /**
+     * Builds the transpose, in which every edge points the other way, in
+     * the same kind of storage. Node indices are unchanged. The caller owns
+     * the result and must close it.
+     *
+     * @return the reversed graph
+     */
+    GraphStorage transpose();
+
+    /**
+     * Method for checking whether any edge has a negative weight.
+     *
+     * @return true if some edge weight is below zero
+     */
+    boolean hasNegativeWeights();
+
+    /**
+     * Releases the resources of this storage.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -1,5 +1,7 @@
 package engine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.Map;
@@ -29,45 +31,78 @@ public class GraphToolkit {
      * @return       the shortest path from src to tgt.
      */
     public static List<Integer> bfs(Graph g, int srcID, int tgtID, boolean flow) {
-        if (g == null) {
-            throw new IllegalArgumentException();
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("bfs");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            Node src = g.getNodeByID(srcID);
+            Node tgt = g.getNodeByID(tgtID);
+
+            if (src == null || tgt == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return convertList(Search.bfs(g, src, tgt, flow));
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.bfs", start);
         }
-        
-        Node src = g.getNodeByID(srcID);
-        Node tgt = g.getNodeByID(tgtID);
-        
-        if (src == null || tgt == null) {
-            throw new IllegalArgumentException();
+    }
+
+    /**
+     * Wrapper for BFS on a graph held in a GraphStorage, such as a
+     * CompressedGraph.
+     * @see Search#bfs(GraphStorage, int, int)
+     *
+     * @param g      the graph
+     * @param srcID  the node to start BFS from
+     * @param tgtID  the node to end BFS at
+     * @return       the shortest path from src to tgt, or an empty list if
+     *               there is none
+     */
+    public static List<Integer> bfs(GraphStorage g, int srcID, int tgtID) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("bfs");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            int src = g.indexOf(srcID);
+            int tgt = g.indexOf(tgtID);
+            if (src < 0 || tgt < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            List<Integer> path = new ArrayList<>();
+            for (int v : Search.bfs(g, src, tgt)) {
+                path.add(g.getID(v));
+            }
+            return path;
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.bfs", start);
         }
-        
-        return convertList(Search.bfs(g, src, tgt, flow));
     }
     
 	/**
 	 * Wrapper for DFS that outputs a DFS Tree.
-     * @see Search#dfsTree(Graph, Node)
+     * @see Search#dfsTree(IndexedGraph, int, DfsVisitor)
 	 * 
 	 * @param g the Graph
 	 * @param srcID the start Node's ID
 	 * @return A DFS tree mapping of nodes to start and finish times
 	 */
     public static Map<Integer, List<Integer>> dfsTree(Graph g, int srcID) {
-        if (g == null) {
-            throw new IllegalArgumentException();
-        }
-        
-        Node src = g.getNodeByID(srcID);
-        
-        if (src == null) {
-            throw new IllegalArgumentException();
-        }
-        
-        return convertIntMap(Search.dfsTree(g, src));
+        return dfs(g, srcID, false, null);
     }
     
 	/**
 	 * Wrapper for DFS that outputs a DFS Forest.
-     * @see Search#dfsForest(Graph, Node)
+     * @see Search#dfsForest(IndexedGraph, int, DfsVisitor)
 	 * 
 	 * @param g the Graph
 	 * @param srcID the node to start DFS
@@ -75,91 +110,395 @@ public class GraphToolkit {
 	 * times. 
 	 */
     public static Map<Integer, List<Integer>> dfsForest(Graph g, int srcID) {
-        if (g == null) {
-            throw new IllegalArgumentException();
-        }
-        
-        Node src = g.getNodeByID(srcID);
-        
-        if (src == null) {
-            throw new IllegalArgumentException();
+        return dfs(g, srcID, true, null);
+    }
+
+    /**
+     * Wrapper for DFS that reports every discovery, finish and edge to a
+     * visitor.
+     * @see Search#dfsTree(IndexedGraph, int, DfsVisitor)
+     * @see Search#dfsForest(IndexedGraph, int, DfsVisitor)
+     *
+     * @param g        the Graph
+     * @param srcID    the start Node's ID
+     * @param forest   whether to restart from unvisited Nodes until every
+     *                 Node has been visited
+     * @param visitor  receives the search events, or null
+     * @return         A mapping of visited nodes to start and finish times
+     */
+    public static Map<Integer, List<Integer>> dfs(Graph g, int srcID,
+                                                  boolean forest,
+                                                  DfsVisitor visitor) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("dfs");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            int src = ig.indexOf(srcID);
+            if (src < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            int[][] times = forest ? Search.dfsForest(ig, src, visitor)
+                    : Search.dfsTree(ig, src, visitor);
+            Map<Integer, List<Integer>> result = new HashMap<>();
+            for (int v = 0; v < ig.n; v++) {
+                if (times[0][v] != 0) {
+                    result.put(ig.ids[v], Arrays.asList(times[0][v],
+                            times[1][v]));
+                }
+            }
+            return result;
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.dfs", start);
         }
-        
-        return convertIntMap(Search.dfsForest(g, src));
     }
 
     /**
-     * Wrapper for Kosaraju's algorithm.
+     * Wrapper for Tarjan's algorithm.
      * @see Connectivity#getSCC(Graph)
      * 
-     * @param g  the Graph on which to run Kosaraju's
+     * @param g  the Graph on which to run Tarjan's
      * @return   the Set of connected components
      */
     public static Set<Set<Integer>> getSCC(Graph g) {
-        if (g == null) {
-            throw new IllegalArgumentException();
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getSCC");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return Connectivity.getSCC(g);
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getSCC", start);
+        }
+    }
+
+    /**
+     * Wrapper for Tarjan's algorithm that returns the strongly connected
+     * components as one label per Node.
+     * @see Connectivity#tarjan(IndexedGraph)
+     *
+     * @param g  the Graph on which to run Tarjan's
+     * @return   the component of every Node, numbered in topological order
+     */
+    public static ComponentLabeling getSCCLabeling(Graph g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getSCCLabeling");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return Connectivity.tarjan(IndexedGraph.of(g));
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getSCCLabeling", start);
+        }
+    }
+
+    /**
+     * Wrapper for finding strongly connected components on all cores.
+     * @see Connectivity#parallelSCC(IndexedGraph)
+     *
+     * @param g  the Graph
+     * @return   the component of every Node; unlike getSCCLabeling, the
+     *           labels are not in topological order
+     */
+    public static ComponentLabeling getSCCParallel(Graph g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getSCCParallel");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return Connectivity.parallelSCC(IndexedGraph.of(g));
+        } finally {
+            event.end(g, 2);
+            Metrics.stop("graphToolkit.getSCCParallel", start);
+        }
+    }
+
+    /**
+     * Wrapper for finding the weakly connected components of a Graph.
+     * @see Connectivity#wcc(GraphStorage)
+     *
+     * @param g  the Graph
+     * @return   the component of every Node, labelled in the order of
+     *           their smallest Node ID; getSizeHistogram() summarizes them
+     */
+    public static ComponentLabeling getWCC(Graph g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getWCC");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return Connectivity.wcc(IndexedGraph.of(g));
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getWCC", start);
+        }
+    }
+
+    /**
+     * Wrapper for finding the weakly connected components of a graph held
+     * in a GraphStorage, such as an OffHeapGraph.
+     * @see Connectivity#wcc(GraphStorage)
+     *
+     * @param g  the graph
+     * @return   the component of every node, labelled in the order of
+     *           their smallest node ID
+     */
+    public static ComponentLabeling getWCC(GraphStorage g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getWCC");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return Connectivity.wcc(g);
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getWCC", start);
+        }
+    }
+
+    /**
+     * Wrapper for building the condensation DAG of a Graph.
+     * @see Connectivity#condense(IndexedGraph, ComponentLabeling)
+     *
+     * @param g    the Graph
+     * @param scc  the strongly connected components of g, as returned by
+     *             getSCCLabeling
+     * @return     a Graph with one Node per component, whose ID is the
+     *             component label
+     */
+    public static Graph getCondensation(Graph g, ComponentLabeling scc) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getCondensation");
+        try {
+            if (g == null || scc == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            if (!Arrays.equals(ig.ids, scc.getNodeIDs())) {
+                throw new IllegalArgumentException(
+                        "Labeling is for another graph");
+            }
+
+            return Connectivity.condense(ig, scc);
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getCondensation", start);
         }
-        
-        return Connectivity.getSCC(g);
     }
     
 	/**
 	 * Wrapper for topological sort.
-     * @see Search#topSort(Graph)
+     * @see Search#topSort(IndexedGraph)
 	 * 
 	 * @param g the Graph
 	 * @return a topological sort of the vertices in the
 	 * graph. 
+     * @throws CycleException if g has a cycle, which the exception carries
 	 */
     public static List<Integer> topSort(Graph g) {
-        if (g == null) {
-            throw new IllegalArgumentException();
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("topSort");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            List<Integer> result = new ArrayList<>(ig.n);
+            for (int v : Search.topSort(ig)) {
+                result.add(ig.ids[v]);
+            }
+            return result;
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.topSort", start);
+        }
+    }
+
+    /**
+     * Wrapper for splitting a DAG into layers for scheduling.
+     * @see Search#topSortLayers(IndexedGraph)
+     *
+     * @param g  the Graph
+     * @return   the layers of Node IDs; every Node's predecessors are in
+     *           earlier layers, so each layer can be run in parallel
+     * @throws CycleException if g has a cycle, which the exception carries
+     */
+    public static List<List<Integer>> topSortLayers(Graph g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("topSortLayers");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            int[][] layers = Search.topSortLayers(ig);
+            List<List<Integer>> result = new ArrayList<>(layers.length);
+            for (int[] layer : layers) {
+                List<Integer> ids = new ArrayList<>(layer.length);
+                for (int v : layer) {
+                    ids.add(ig.ids[v]);
+                }
+                result.add(ids);
+            }
+            return result;
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.topSortLayers", start);
         }
-        
-        return convertList(Search.topSort(g)); 
     }
 
     /**
-     * Wrapper for the Bellman-Ford algorithm.
-     * @see Search#bellmanFord(Graph, Node)
+     * Wrapper for Single-Source Shortest Paths. If every edge weight is
+     * non-negative this runs Dijkstra's algorithm; otherwise it falls back
+     * to the queue-based Bellman-Ford algorithm.
+     * @see ShortestPaths#dijkstra(GraphStorage, int)
+     * @see ShortestPaths#spfa(IndexedGraph, int)
      *
      * @param g the input graph
      * @param srcID the starting node's ID
-     * @return a map with shortest paths distances from src to every other node
+     * @return a map with shortest paths distances from src to every other
+     * node, with Double.MAX_VALUE for nodes that cannot be reached
+     * @throws CycleException if a negative cycle is reachable from src
      */
     public static Map<Integer, Double> getSingleSourceShortestPath(Graph g,
                                                                    int srcID) {
-        if (g == null) {
-            throw new IllegalArgumentException("Null input");
+        long start = Metrics.start();
+        AlgorithmEvent event =
+                AlgorithmEvent.begin("getSingleSourceShortestPath");
+        long passes = 1;
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException("Null input");
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            int src = ig.indexOf(srcID);
+            if (src < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            if (ig.hasNegativeWeights()) {
+                // SPFA's bound is a pass per node
+                passes = ig.n;
+                return convertDistances(ig, ShortestPaths.spfa(ig, src));
+            }
+
+            return convertDistances(ig, ShortestPaths.dijkstra(ig, src));
+        } finally {
+            event.end(g, passes);
+            Metrics.stop("graphToolkit.getSingleSourceShortestPath", start);
         }
+    }
 
-        Node src = g.getNodeByID(srcID);
-        if (src == null) {
-            throw new IllegalArgumentException();
+    /**
+     * Wrapper for Single-Source Shortest Paths on a graph held in a
+     * GraphStorage, such as an OffHeapGraph, using Dijkstra's algorithm.
+     * @see ShortestPaths#dijkstra(GraphStorage, int)
+     *
+     * @param g the input graph, with no negative edge weights
+     * @param srcID the starting node's ID
+     * @return a map with shortest paths distances from src to every other
+     * node, with Double.MAX_VALUE for nodes that cannot be reached
+     */
+    public static Map<Integer, Double> getSingleSourceShortestPath(
+            GraphStorage g, int srcID) {
+        long start = Metrics.start();
+        AlgorithmEvent event =
+                AlgorithmEvent.begin("getSingleSourceShortestPath");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException("Null input");
+            }
+
+            int src = g.indexOf(srcID);
+            if (src < 0 || g.hasNegativeWeights()) {
+                throw new IllegalArgumentException();
+            }
+
+            return convertDistances(g, ShortestPaths.dijkstra(g, src));
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getSingleSourceShortestPath", start);
         }
-        
-        return convertMap(Search.bellmanFord(g, src));
     }
 
     /**
-     * Wrapper for the Floyd-Warshall algorithm.
-     * @see Search#floydWarshall(Graph)
+     * Wrapper for the blocked, parallel Floyd-Warshall algorithm.
+     * @see ShortestPaths#floydWarshall(IndexedGraph)
      *
      * @param g the input graph
-     * @return a map representing the all-pairs shortest path matrix
+     * @return the all-pairs shortest path matrix, which can also be read as
+     * a map from source ID to a map of reachable target IDs to distances
+     * @throws IllegalArgumentException if the graph has more than 46,340
+     * nodes, too many for one matrix; stream the rows instead
      */
-    public static Map<Integer, Map<Integer, Double>> getAllPairsShortestPath(
-            Graph g) {
-        if (g == null) {
-            throw new IllegalArgumentException();
+    public static DistanceMatrix getAllPairsShortestPath(Graph g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getAllPairsShortestPath");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return ShortestPaths.floydWarshall(IndexedGraph.of(g));
+        } finally {
+            event.end(g, g == null ? 0 : g.getSize());
+            Metrics.stop("graphToolkit.getAllPairsShortestPath", start);
         }
-        
-        return convertFloyd(Search.floydWarshall(g));
     }
 
     /**
-     * Wrapper for the Ford-Fulkerson algorithm.
-     * @see Flow#getMaxFlow(Graph, Node, Node)
+     * Wrapper for Johnson's algorithm, the all-pairs mode for large sparse
+     * graphs. Rows are streamed to the consumer instead of being collected.
+     * @see ShortestPaths#johnson(IndexedGraph, DistanceRowConsumer)
+     *
+     * @param g the input graph
+     * @param consumer receives the distances from every source Node
+     * @throws CycleException if the graph contains a negative cycle
+     */
+    public static void getAllPairsShortestPath(Graph g,
+                                               DistanceRowConsumer consumer) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getAllPairsShortestPath");
+        try {
+            if (g == null || consumer == null) {
+                throw new IllegalArgumentException();
+            }
+
+            ShortestPaths.johnson(IndexedGraph.of(g), consumer);
+        } finally {
+            event.end(g, g == null ? 0 : g.getSize());
+            Metrics.stop("graphToolkit.getAllPairsShortestPath", start);
+        }
+    }
+
+    /**
+     * Wrapper for maximum flow, using Dinic's algorithm. The result is
+     * rounded to an int; use
+     * {@link #getMaxFlow(Graph, int, int, MaxFlowAlgorithm)} for fractional
+     * capacities.
+     * @see Flow#getMaxFlow(IndexedGraph, int, int, MaxFlowAlgorithm,
+     * AlgorithmEvent)
      *
      * @param g   The graph to find
      * @param srcID the starting node's ID
@@ -167,17 +506,81 @@ public class GraphToolkit {
      * @return the maximum flow from src -> tgt on the graph g
      */
     public static int getMaxFlow(Graph g, int srcID, int tgtID) {
-        if (g == null) {
-            throw new IllegalArgumentException();
+        return (int) Math.round(getMaxFlow(g, srcID, tgtID,
+                MaxFlowAlgorithm.DINIC));
+    }
+
+    /**
+     * Wrapper for maximum flow with a choice of algorithm.
+     * @see Flow#getMaxFlow(IndexedGraph, int, int, MaxFlowAlgorithm,
+     * AlgorithmEvent)
+     *
+     * @param g         the graph, with edge weights as capacities
+     * @param srcID     the starting node's ID
+     * @param tgtID     the ending node's ID
+     * @param algorithm the algorithm to run
+     * @return the maximum flow from src -> tgt on the graph g
+     */
+    public static double getMaxFlow(Graph g, int srcID, int tgtID,
+                                    MaxFlowAlgorithm algorithm) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getMaxFlow");
+        try {
+            if (g == null || algorithm == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            int src = ig.indexOf(srcID);
+            int tgt = ig.indexOf(tgtID);
+            if (src < 0 || tgt < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            return Flow.getMaxFlow(ig, src, tgt, algorithm, event);
+        } finally {
+            // Building the residual network reads every edge once
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getMaxFlow", start);
         }
-        
-        Node src = g.getNodeByID(srcID);
-        Node tgt = g.getNodeByID(tgtID);
-        if (src == null || tgt == null) {
-            throw new IllegalArgumentException();
+    }
+
+    /**
+     * Opens a FlowSession, which solves maximum flow and keeps the residual
+     * network so that the minimum cut can be read and capacities changed
+     * without solving from scratch.
+     * @see FlowSession
+     *
+     * @param g         the graph, with edge weights as capacities
+     * @param srcID     the starting node's ID
+     * @param tgtID     the ending node's ID
+     * @param algorithm the algorithm used for the first solve; re-solves
+     *                  use Dinic
+     * @return a session for the s-t flow problem on g
+     */
+    public static FlowSession openFlowSession(Graph g, int srcID, int tgtID,
+                                              MaxFlowAlgorithm algorithm) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("openFlowSession");
+        try {
+            if (g == null || algorithm == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            int src = ig.indexOf(srcID);
+            int tgt = ig.indexOf(tgtID);
+            if (src < 0 || tgt < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            return new FlowSession(ig, src, tgt, algorithm);
+        } finally {
+            // The session solves lazily; opening it only builds the
+            // residual network
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.openFlowSession", start);
         }
-        
-        return Flow.getMaxFlow(g, src, tgt);
     }
 
     /**
@@ -188,11 +591,151 @@ public class GraphToolkit {
      * @return a map containing the betweeness centrality values
      */
     public static Map<Integer, Double> getBetweennessCentrality(Graph g) {
-        if (g == null) {
-            throw new IllegalArgumentException();
+        long start = Metrics.start();
+        AlgorithmEvent event =
+                AlgorithmEvent.begin("getBetweennessCentrality");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return convertMap(Centrality.btwCentrality(g));
+        } finally {
+            event.end(g, g == null ? 0 : g.getSize());
+            Metrics.stop("graphToolkit.getBetweennessCentrality", start);
+        }
+    }
+
+    /**
+     * Wrapper for exact closeness centrality, computed with a parallel BFS
+     * from every Node.
+     * @see Centrality#distanceCentrality(GraphStorage)
+     *
+     * @param g the Graph whose values should be calculated
+     * @return a map from node ID to closeness centrality
+     */
+    public static Map<Integer, Double> getClosenessCentrality(Graph g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getClosenessCentrality");
+        try {
+            return distanceCentrality(g, 0, 0, null);
+        } finally {
+            event.end(g, g == null ? 0 : g.getSize());
+            Metrics.stop("graphToolkit.getClosenessCentrality", start);
+        }
+    }
+
+    /**
+     * Wrapper for exact harmonic centrality, computed with a parallel BFS
+     * from every Node.
+     * @see Centrality#distanceCentrality(GraphStorage)
+     *
+     * @param g the Graph whose values should be calculated
+     * @return a map from node ID to harmonic centrality
+     */
+    public static Map<Integer, Double> getHarmonicCentrality(Graph g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getHarmonicCentrality");
+        try {
+            return distanceCentrality(g, 0, 1, null);
+        } finally {
+            event.end(g, g == null ? 0 : g.getSize());
+            Metrics.stop("graphToolkit.getHarmonicCentrality", start);
+        }
+    }
+
+    /**
+     * Wrapper for exact closeness centrality of a graph held in a
+     * GraphStorage, such as an OffHeapGraph.
+     * @see Centrality#distanceCentrality(GraphStorage)
+     *
+     * @param g the graph whose values should be calculated
+     * @return a map from node ID to closeness centrality
+     */
+    public static Map<Integer, Double> getClosenessCentrality(GraphStorage g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getClosenessCentrality");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return convertValues(g, Centrality.distanceCentrality(g)[0]);
+        } finally {
+            event.end(g, g == null ? 0 : g.numNodes());
+            Metrics.stop("graphToolkit.getClosenessCentrality", start);
+        }
+    }
+
+    /**
+     * Wrapper for exact harmonic centrality of a graph held in a
+     * GraphStorage, such as an OffHeapGraph.
+     * @see Centrality#distanceCentrality(GraphStorage)
+     *
+     * @param g the graph whose values should be calculated
+     * @return a map from node ID to harmonic centrality
+     */
+    public static Map<Integer, Double> getHarmonicCentrality(GraphStorage g) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getHarmonicCentrality");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return convertValues(g, Centrality.distanceCentrality(g)[1]);
+        } finally {
+            event.end(g, g == null ? 0 : g.numNodes());
+            Metrics.stop("graphToolkit.getHarmonicCentrality", start);
+        }
+    }
+
+    /**
+     * Wrapper for closeness centrality estimated with HyperBall, for graphs
+     * too large for a BFS from every Node.
+     * @see Centrality#hyperBall(IndexedGraph, int, AlgorithmEvent)
+     *
+     * @param g      the Graph whose values should be calculated
+     * @param log2m  the base-2 log of the HyperLogLog registers per Node,
+     *               in [4, 16]; more registers give smaller errors
+     * @return a map from node ID to estimated closeness centrality
+     */
+    public static Map<Integer, Double> getApproximateClosenessCentrality(
+            Graph g, int log2m) {
+        long start = Metrics.start();
+        AlgorithmEvent event =
+                AlgorithmEvent.begin("getApproximateClosenessCentrality");
+        try {
+            return distanceCentrality(g, log2m, 0, event);
+        } finally {
+            event.end(g, event.iterations);
+            Metrics.stop("graphToolkit.getApproximateClosenessCentrality",
+                    start);
+        }
+    }
+
+    /**
+     * Wrapper for harmonic centrality estimated with HyperBall, for graphs
+     * too large for a BFS from every Node.
+     * @see Centrality#hyperBall(IndexedGraph, int, AlgorithmEvent)
+     *
+     * @param g      the Graph whose values should be calculated
+     * @param log2m  the base-2 log of the HyperLogLog registers per Node,
+     *               in [4, 16]; more registers give smaller errors
+     * @return a map from node ID to estimated harmonic centrality
+     */
+    public static Map<Integer, Double> getApproximateHarmonicCentrality(
+            Graph g, int log2m) {
+        long start = Metrics.start();
+        AlgorithmEvent event =
+                AlgorithmEvent.begin("getApproximateHarmonicCentrality");
+        try {
+            return distanceCentrality(g, log2m, 1, event);
+        } finally {
+            event.end(g, event.iterations);
+            Metrics.stop("graphToolkit.getApproximateHarmonicCentrality",
+                    start);
         }
-        
-        return convertMap(Centrality.btwCentrality(g));
     }
 
     /**
@@ -203,13 +746,174 @@ public class GraphToolkit {
      * @return a map from node ID to rank
      */
     public static Map<Integer, Double> getPageRank(Graph g) {
-        if (g == null) {
-            throw new IllegalArgumentException();
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getPageRank");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return Centrality.pageRank(g);
+        } finally {
+            // The edges are read once into a dense matrix; the
+            // eigendecomposition does not report its iterations
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.getPageRank", start);
         }
-        
-        return Centrality.pageRank(g);
     }
-    
+
+    /**
+     * Wrapper for the parallel, iterative PageRank solver.
+     * @see Centrality#blockPageRank(GraphStorage, PageRankOptions)
+     *
+     * @param g        the graph to run PageRank on
+     * @param options  the solver settings, including an optional listener
+     *                 for per-iteration telemetry
+     * @return a map from node ID to rank
+     */
+    public static Map<Integer, Double> getPageRank(Graph g,
+                                                   PageRankOptions options) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getPageRank");
+        try {
+            if (g == null || options == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            return convertValues(ig, Centrality.blockPageRank(ig,
+                    countIterations(options, event)));
+        } finally {
+            event.end(g, event.iterations);
+            Metrics.stop("graphToolkit.getPageRank", start);
+        }
+    }
+
+    /**
+     * Wrapper for the parallel, iterative PageRank solver on a graph held
+     * in a GraphStorage, such as an OffHeapGraph. The transpose it pulls
+     * along is built in the same kind of storage and freed before this
+     * returns.
+     * @see Centrality#blockPageRank(GraphStorage, PageRankOptions)
+     *
+     * @param g        the graph to run PageRank on
+     * @param options  the solver settings, including an optional listener
+     *                 for per-iteration telemetry
+     * @return a map from node ID to rank
+     */
+    public static Map<Integer, Double> getPageRank(GraphStorage g,
+                                                   PageRankOptions options) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("getPageRank");
+        try {
+            if (g == null || options == null) {
+                throw new IllegalArgumentException();
+            }
+
+            return convertValues(g, Centrality.blockPageRank(g,
+                    countIterations(options, event)));
+        } finally {
+            event.end(g, event.iterations);
+            Metrics.stop("graphToolkit.getPageRank", start);
+        }
+    }
+
+    /**
+     * Copies PageRank options with a listener that also records the
+     * iteration count on a JFR event.
+     *
+     * @param options  the solver settings
+     * @param event    the event to update
+     * @return         the options to run with
+     */
+    private static PageRankOptions countIterations(PageRankOptions options,
+                                                   AlgorithmEvent event) {
+        final PageRankListener listener = options.getListener();
+        return options.withListener(new PageRankListener() {
+            public void onIteration(int iteration, double residual,
+                                    long elapsedNanos,
+                                    double edgesPerSecond) {
+                event.iterations = iteration;
+                if (listener != null) {
+                    listener.onIteration(iteration, residual,
+                            elapsedNanos, edgesPerSecond);
+                }
+            }
+        });
+    }
+
+    /**
+     * Opens a DynamicPageRank over a Graph, with damping factor 0.85 and a
+     * residual tolerance of 1e-10.
+     * @see #openDynamicPageRank(Graph, double, double)
+     *
+     * @param g the graph to run PageRank on
+     * @return PageRank scores for g that can be updated with edge batches
+     */
+    public static DynamicPageRank openDynamicPageRank(Graph g) {
+        return openDynamicPageRank(g, 0.85, 1e-10);
+    }
+
+    /**
+     * Opens a DynamicPageRank, which solves PageRank once and then keeps it
+     * up to date under batches of edge insertions and deletions, pushing
+     * only the residuals around the changed edges.
+     * @see DynamicPageRank
+     *
+     * @param g          the graph to run PageRank on
+     * @param df         the damping factor, in (0, 1)
+     * @param tolerance  the largest residual left on any node after an
+     *                   update
+     * @return PageRank scores for g that can be updated with edge batches
+     */
+    public static DynamicPageRank openDynamicPageRank(Graph g, double df,
+                                                      double tolerance) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("openDynamicPageRank");
+        try {
+            if (g == null) {
+                throw new IllegalArgumentException();
+            }
+
+            DynamicPageRank ranks = new DynamicPageRank(g, df, tolerance);
+            event.edgesTouched = ranks.edgesTouched;
+            return ranks;
+        } finally {
+            event.end(g, 1);
+            Metrics.stop("graphToolkit.openDynamicPageRank", start);
+        }
+    }
+
+    /**
+     * Relabels a Graph for cache locality. Input IDs, such as MovieLens
+     * users and offset items, say nothing about which nodes are traversed
+     * together; the relabelled Graph numbers its Nodes 0 to n - 1 in the
+     * chosen order, and the result maps them back.
+     * @see Reordering#order(IndexedGraph, NodeOrdering, AlgorithmEvent)
+     *
+     * @param g         the Graph
+     * @param ordering  the ordering to apply
+     * @return          the relabelled Graph and its mapping to the input IDs
+     */
+    public static Relabeling reorder(Graph g, NodeOrdering ordering) {
+        long start = Metrics.start();
+        AlgorithmEvent event = AlgorithmEvent.begin("reorder");
+        try {
+            if (g == null || ordering == null) {
+                throw new IllegalArgumentException();
+            }
+
+            IndexedGraph ig = IndexedGraph.of(g);
+            // Indexing and relabelling each read every edge once
+            event.edgesTouched = 2L * ig.offsets[ig.n];
+            int[] order = Reordering.order(ig, ordering, event);
+            return new Relabeling(ig, order);
+        } finally {
+            event.end(g, 2);
+            Metrics.stop("graphToolkit.reorder", start);
+        }
+    }
+
     /**
      * Converts the given map from Nodes to doubles to be Node IDs to doubles.
      * 
@@ -231,26 +935,63 @@ public class GraphToolkit {
     }
     
     /**
-     * Converts the given map from Node to a list of finish times to use IDs.
-     * 
-     * @param nodeMap  the map to convert
-     * @return         the converted map
+     * Converts an array of distances indexed by node to a map keyed by Node
+     * ID, using Double.MAX_VALUE for unreachable nodes as Bellman-Ford does.
+     *
+     * @param g      the storage the distances belong to
+     * @param dists  the distances to convert
+     * @return       the converted map
      */
-    private static Map<Integer, List<Integer>> convertIntMap(
-            Map<Node, List<Integer>> nodeMap) {
-        if (nodeMap == null) {
-            throw new IllegalArgumentException();
+    private static Map<Integer, Double> convertDistances(GraphStorage g,
+                                                         double[] dists) {
+        Map<Integer, Double> result = new HashMap<>();
+
+        for (int v = 0; v < g.numNodes(); v++) {
+            double d = dists[v];
+            result.put(g.getID(v), d == Double.POSITIVE_INFINITY ?
+                    Double.MAX_VALUE : d);
         }
-        
-        Map<Integer, List<Integer>> result = new HashMap<>();
-        
-        for (Node node : nodeMap.keySet()) {
-            result.put(node.getID(), nodeMap.get(node));
+
+        return result;
+    }
+
+    /**
+     * Converts values indexed by node to a map keyed by Node ID.
+     *
+     * @param g       the storage the values were computed on
+     * @param values  the value of every node, by index
+     * @return        a map from node ID to value
+     */
+    private static Map<Integer, Double> convertValues(GraphStorage g,
+                                                      double[] values) {
+        Map<Integer, Double> result = new HashMap<>();
+        for (int v = 0; v < g.numNodes(); v++) {
+            result.put(g.getID(v), values[v]);
         }
-        
         return result;
     }
-    
+
+    /**
+     * Runs exact or approximate distance centrality and keeps one measure.
+     *
+     * @param g        the Graph
+     * @param log2m    the HyperBall register count, or 0 for exact
+     * @param measure  0 for closeness, 1 for harmonic
+     * @param event    receives the HyperBall passes, or null
+     * @return         a map from node ID to the measure
+     */
+    private static Map<Integer, Double> distanceCentrality(
+            Graph g, int log2m, int measure, AlgorithmEvent event) {
+        if (g == null) {
+            throw new IllegalArgumentException();
+        }
+
+        IndexedGraph ig = IndexedGraph.of(g);
+        double[] values = (log2m == 0 ? Centrality.distanceCentrality(ig)
+                : Centrality.hyperBall(ig, log2m, event))[measure];
+        return convertValues(ig, values);
+    }
+
     /**
      * Converts a list of Nodes to use Node IDs
      * 
@@ -270,24 +1011,4 @@ public class GraphToolkit {
         
         return result;
     }
-    
-    /**
-     * Converts the output of the Floyd-Warshall algorithm to use Node IDs
-     * 
-     * @param nodeMap  the output to convert
-     * @return         the converted output
-     */
-    private static Map<Integer, Map<Integer, Double>> convertFloyd(Map<Node, 
-            Map<Node, Double>> nodeMap) {
-        if (nodeMap == null) {
-            throw new IllegalArgumentException();
-        }
-        
-        Map<Integer, Map<Integer, Double>> result = new HashMap<>();
-        for (Node node : nodeMap.keySet()) {
-            result.put(node.getID(), convertMap(nodeMap.get(node)));
-        }
-        
-        return result;
-    }
 }
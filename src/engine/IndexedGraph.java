@@ -0,0 +1,237 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * This class provides a compact, read-only snapshot of a Graph in
+ * compressed sparse row (CSR) form.
+ *
+ * <p>
+ *     Every Node is given a dense index in [0, n), assigned in ascending
+ *     order of Node ID. The outgoing edges of the Node with index v are
+ *     stored in targets[offsets[v]] to targets[offsets[v + 1] - 1], sorted
+ *     by target index, with their weights in the matching slots of weights.
+ *     Algorithms that run over this form work on primitive arrays instead
+ *     of Node, Edge and HashMap lookups. It is also the on-heap
+ *     GraphStorage.
+ *
+ */
+class IndexedGraph implements GraphStorage {
+    // Number of nodes
+    final int n;
+    // Index to Node ID, in ascending order
+    final int[] ids;
+    // Index to the first edge of that node; offsets[n] is the edge count
+    final int[] offsets;
+    // Edge to target index
+    final int[] targets;
+    // Edge to weight
+    final double[] weights;
+
+    IndexedGraph(int[] ids, int[] offsets, int[] targets, double[] weights) {
+        this.n = ids.length;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds the CSR snapshot of the given Graph.
+     *
+     * @param g  the Graph to index
+     * @return   the indexed form of g
+     */
+    static IndexedGraph of(Graph g) {
+        if (g == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Collection<Node> nodes = g.getNodeView();
+        int n = nodes.size();
+        int[] ids = new int[n];
+        int i = 0;
+        for (Node node : nodes) {
+            ids[i++] = node.getID();
+        }
+        Arrays.sort(ids);
+
+        int[] offsets = new int[n + 1];
+        for (Node node : nodes) {
+            offsets[Arrays.binarySearch(ids, node.getID()) + 1] =
+                    node.getOutDegree();
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        for (Node node : nodes) {
+            int v = Arrays.binarySearch(ids, node.getID());
+            int pos = offsets[v];
+            for (Edge e : node.getEdgeView()) {
+                targets[pos] = Arrays.binarySearch(ids, e.getTgt().getID());
+                weights[pos] = e.getWeight();
+                pos++;
+            }
+            sortRow(targets, weights, offsets[v], pos);
+        }
+
+        return new IndexedGraph(ids, offsets, targets, weights);
+    }
+
+    /**
+     * Builds the transpose of this graph, in which every edge points the
+     * other way. Node indices are unchanged.
+     *
+     * @return the reversed graph
+     */
+    @Override
+    public IndexedGraph transpose() {
+        int m = targets.length;
+        int[] revOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            revOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            revOffsets[v + 1] += revOffsets[v];
+        }
+
+        // Sources are visited in order, so every row comes out sorted
+        int[] fill = Arrays.copyOf(revOffsets, n);
+        int[] revTargets = new int[m];
+        double[] revWeights = new double[m];
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int pos = fill[targets[e]]++;
+                revTargets[pos] = u;
+                revWeights[pos] = weights[e];
+            }
+        }
+
+        return new IndexedGraph(ids, revOffsets, revTargets, revWeights);
+    }
+
+    /**
+     * Returns the index of the Node with the given ID.
+     *
+     * @param id  the Node ID
+     * @return    its index, or -1 if the Graph has no such Node
+     */
+    @Override
+    public int indexOf(int id) {
+        int v = Arrays.binarySearch(ids, id);
+        return v < 0 ? -1 : v;
+    }
+
+    /**
+     * Method for checking whether any edge has a negative weight.
+     *
+     * @return true if some edge weight is below zero
+     */
+    @Override
+    public boolean hasNegativeWeights() {
+        for (double w : weights) {
+            if (w < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int numNodes() {
+        return n;
+    }
+
+    @Override
+    public long numEdges() {
+        return targets.length;
+    }
+
+    @Override
+    public int getID(int v) {
+        return ids[v];
+    }
+
+    @Override
+    public int getOutDegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * This class provides a cursor over the CSR arrays.
+     */
+    private final class Cursor implements NeighborCursor {
+        private int pos;
+        private int end;
+
+        @Override
+        public void reset(int v) {
+            pos = offsets[v] - 1;
+            end = offsets[v + 1];
+        }
+
+        @Override
+        public boolean next() {
+            return ++pos < end;
+        }
+
+        @Override
+        public int target() {
+            return targets[pos];
+        }
+
+        @Override
+        public double weight() {
+            return weights[pos];
+        }
+    }
+
+    /**
+     * Sorts the edges in [from, to) by target index, keeping each weight
+     * next to its target. Short rows use an insertion sort; long rows pack
+     * (target, position) into longs so a primitive sort can be used.
+     *
+     * @param targets  the target array
+     * @param weights  the weight array
+     * @param from     the first edge of the row
+     * @param to       one past the last edge of the row
+     */
+    static void sortRow(int[] targets, double[] weights,
+                        int from, int to) {
+        if (to - from <= 32) {
+            for (int i = from + 1; i < to; i++) {
+                int t = targets[i];
+                double w = weights[i];
+                int j = i - 1;
+                while (j >= from && targets[j] > t) {
+                    targets[j + 1] = targets[j];
+                    weights[j + 1] = weights[j];
+                    j--;
+                }
+                targets[j + 1] = t;
+                weights[j + 1] = w;
+            }
+            return;
+        }
+
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            keys[i - from] = ((long) targets[i] << 32) | (i - from);
+        }
+        Arrays.sort(keys);
+        double[] rowWeights = Arrays.copyOfRange(weights, from, to);
+        for (int i = 0; i < keys.length; i++) {
+            targets[from + i] = (int) (keys[i] >>> 32);
+            weights[from + i] = rowWeights[(int) keys[i]];
+        }
+    }
+}
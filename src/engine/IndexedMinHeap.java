@@ -0,0 +1,129 @@
+package engine;
+
+/**
+ * This class provides a binary min-heap over the integers [0, capacity),
+ * keyed by doubles, with O(log n) decrease-key.
+ *
+ * <p>
+ *     The heap is stored in primitive arrays: heap holds the items in heap
+ *     order and pos maps every item back to its slot (or -1 if it is not in
+ *     the heap), so no boxing or per-push allocation takes place. This is
+ *     the priority queue used by Dijkstra's algorithm.
+ *
+ */
+class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] pos;
+    private final double[] keys;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        pos = new int[capacity];
+        keys = new double[capacity];
+        for (int i = 0; i < capacity; i++) {
+            pos[i] = -1;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int item) {
+        return pos[item] >= 0;
+    }
+
+    /**
+     * Inserts the item with the given key, or lowers its key if it is
+     * already in the heap. A key larger than the current one is ignored.
+     *
+     * @param item  the item
+     * @param key   its new key
+     */
+    void insertOrDecrease(int item, double key) {
+        int i = pos[item];
+        if (i < 0) {
+            i = size++;
+            heap[i] = item;
+            pos[item] = i;
+            keys[item] = key;
+        } else if (key < keys[item]) {
+            keys[item] = key;
+        } else {
+            return;
+        }
+        siftUp(i);
+    }
+
+    /**
+     * Removes and returns the item with the smallest key.
+     *
+     * @return the item with the smallest key
+     */
+    int poll() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+
+        int min = heap[0];
+        pos[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Empties the heap so it can be reused for another search.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int item = heap[i];
+        double key = keys[item];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) {
+                break;
+            }
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = item;
+        pos[item] = i;
+    }
+
+    private void siftDown(int i) {
+        int item = heap[i];
+        double key = keys[item];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int c = heap[child];
+            if (key <= keys[c]) {
+                break;
+            }
+            heap[i] = c;
+            pos[c] = i;
+            i = child;
+        }
+        heap[i] = item;
+        pos[item] = i;
+    }
+}
@@ -0,0 +1,157 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class provides a lock-free histogram of durations in nanoseconds,
+ * in the style of HdrHistogram: buckets are linear within each power of
+ * two and there are 64 of them per power, so any recorded value is
+ * reported to within 1/64 (about 1.6%) of its true value, from 1 ns up to
+ * the longest duration a long can hold, in a fixed 30 KB.
+ *
+ * <p>
+ *     Recording is a few shifts and one atomic increment, so it is safe and
+ *     cheap to call from many threads at once. Reads are not atomic with
+ *     respect to concurrent recording: a percentile taken while values are
+ *     being recorded may or may not include them.
+ *
+ */
+public class LatencyHistogram {
+    // Values below 2 * SUB_BUCKETS get a bucket each
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int NUM_BUCKETS = 2 * SUB_BUCKETS
+            + (63 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos  the duration in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the exact mean of the recorded values.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the exact largest recorded value.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value at a percentile: the smallest value v such that the
+     * given percentage of the recorded values are at most v, to within the
+     * precision of the buckets.
+     *
+     * @param percentile  the percentile, in [0, 100]
+     * @return            the value in nanoseconds, or 0 if nothing was
+     *                    recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException();
+        }
+
+        long total = 0;
+        long[] snapshot = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears the histogram.
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Returns the bucket of a value. Values below 2 * SUB_BUCKETS are their
+     * own bucket. Above that, a value is shifted right until it has
+     * SUB_BITS + 1 significant bits, and the shift picks the group of
+     * buckets while the remaining low bits pick the bucket in it.
+     *
+     * @param value  the non-negative value
+     * @return       its bucket
+     */
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS
+                + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest value that falls into a bucket.
+     *
+     * @param bucket  the bucket
+     * @return        its largest value
+     */
+    static long highestValueIn(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        long top = (bucket - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        long highest = ((top + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
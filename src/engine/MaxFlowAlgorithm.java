@@ -0,0 +1,12 @@
+package engine;
+
+/**
+ * The maximum flow algorithms offered by the Graph Toolkit.
+ *
+ */
+public enum MaxFlowAlgorithm {
+    /** Dinic's level-graph blocking flow algorithm. */
+    DINIC,
+    /** Highest-label push-relabel with the gap heuristic. */
+    PUSH_RELABEL
+}
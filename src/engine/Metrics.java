@@ -0,0 +1,147 @@
+package engine;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class provides the engine's built-in instrumentation: named counters
+ * and named timers, which record into LatencyHistograms.
+ *
+ * <p>
+ *     Metrics are off unless the engine.metrics system property is true or
+ *     setEnabled(true) is called. Instrumented code brackets a phase with
+ *
+ * <pre>
+ *     long start = Metrics.start();
+ *     ...
+ *     Metrics.stop("recommender.sort", start);
+ * </pre>
+ *
+ * <p>
+ *     When metrics are off, start() is a single volatile read that returns
+ *     0, and stop() and count() return at once, so the instrumentation can
+ *     stay in the hot paths.
+ *
+ */
+public final class Metrics {
+    private static volatile boolean enabled =
+            Boolean.getBoolean("engine.metrics");
+    private static final Map<String, LatencyHistogram> TIMERS =
+            new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS =
+            new ConcurrentHashMap<>();
+
+    private Metrics() {
+        // This class should not be instantiated
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Turns recording on or off. Recorded metrics are kept either way.
+     *
+     * @param on  whether to record
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return the start time to pass to stop, or 0 if metrics are off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since start in the named timer. Does nothing if
+     * metrics were off at the start.
+     *
+     * @param name   the timer
+     * @param start  the value returned by start()
+     */
+    public static void stop(String name, long start) {
+        if (start != 0L) {
+            getTimer(name).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Adds one to the named counter, if metrics are on.
+     *
+     * @param name  the counter
+     */
+    public static void count(String name) {
+        count(name, 1);
+    }
+
+    /**
+     * Adds to the named counter, if metrics are on.
+     *
+     * @param name   the counter
+     * @param delta  the amount to add
+     */
+    public static void count(String name, long delta) {
+        if (enabled) {
+            COUNTERS.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    /**
+     * Returns the named timer, creating it if needed.
+     *
+     * @param name  the timer
+     * @return      its histogram
+     */
+    public static LatencyHistogram getTimer(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException();
+        }
+        return TIMERS.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the value of the named counter.
+     *
+     * @param name  the counter
+     * @return      its value, or 0 if it was never incremented
+     */
+    public static long getCount(String name) {
+        LongAdder counter = COUNTERS.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Clears every counter and timer.
+     */
+    public static void reset() {
+        TIMERS.clear();
+        COUNTERS.clear();
+    }
+
+    /**
+     * Passes a snapshot of every counter and timer to an exporter.
+     *
+     * @param exporter  the exporter
+     * @throws IOException if the exporter fails
+     */
+    public static void export(MetricsExporter exporter) throws IOException {
+        if (exporter == null) {
+            throw new IllegalArgumentException();
+        }
+        SortedMap<String, Long> counters = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : COUNTERS.entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().sum());
+        }
+        exporter.export(counters, new TreeMap<>(TIMERS));
+    }
+}
@@ -0,0 +1,144 @@
+package engine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * This class provides a MetricsExporter that writes every metric to a
+ * Writer, either as an aligned text table or as one JSON object:
+ *
+ * <pre>
+ *     {"counters":{"name":1,...},
+ *      "timers":{"name":{"count":1,"meanMs":0.1,"p50Ms":0.1,...},...}}
+ * </pre>
+ *
+ * <p>
+ *     Timers report their mean, p50, p90, p99, p99.9 and maximum in
+ *     milliseconds. The Writer is flushed but not closed.
+ *
+ */
+public class MetricsDumpExporter implements MetricsExporter {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] LABELS = {"p50", "p90", "p99", "p999"};
+
+    private final Writer out;
+    private final boolean json;
+
+    private MetricsDumpExporter(Writer out, boolean json) {
+        if (out == null) {
+            throw new IllegalArgumentException();
+        }
+        this.out = out;
+        this.json = json;
+    }
+
+    /**
+     * Creates an exporter that writes a text table.
+     *
+     * @param out  the destination
+     * @return     the exporter
+     */
+    public static MetricsDumpExporter text(Writer out) {
+        return new MetricsDumpExporter(out, false);
+    }
+
+    /**
+     * Creates an exporter that writes a JSON object.
+     *
+     * @param out  the destination
+     * @return     the exporter
+     */
+    public static MetricsDumpExporter json(Writer out) {
+        return new MetricsDumpExporter(out, true);
+    }
+
+    @Override
+    public void export(SortedMap<String, Long> counters,
+                       SortedMap<String, LatencyHistogram> timers)
+            throws IOException {
+        if (json) {
+            writeJson(counters, timers);
+        } else {
+            writeText(counters, timers);
+        }
+        out.flush();
+    }
+
+    private void writeText(SortedMap<String, Long> counters,
+                           SortedMap<String, LatencyHistogram> timers)
+            throws IOException {
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            out.write(String.format(Locale.ROOT, "%-40s %12d%n",
+                    entry.getKey(), entry.getValue()));
+        }
+        if (!timers.isEmpty()) {
+            out.write(String.format(Locale.ROOT,
+                    "%-40s %10s %10s %10s %10s %10s %10s %10s%n", "timer (ms)",
+                    "count", "mean", LABELS[0], LABELS[1], LABELS[2],
+                    LABELS[3], "max"));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : timers.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            out.write(String.format(Locale.ROOT, "%-40s %10d %10.3f",
+                    entry.getKey(), h.getCount(), h.getMean() / 1e6));
+            for (double p : PERCENTILES) {
+                out.write(String.format(Locale.ROOT, " %10.3f",
+                        h.getValueAtPercentile(p) / 1e6));
+            }
+            out.write(String.format(Locale.ROOT, " %10.3f%n",
+                    h.getMax() / 1e6));
+        }
+    }
+
+    private void writeJson(SortedMap<String, Long> counters,
+                           SortedMap<String, LatencyHistogram> timers)
+            throws IOException {
+        StringBuilder sb = new StringBuilder("{\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            appendString(sb, entry.getKey());
+            sb.append(':').append(entry.getValue());
+        }
+        sb.append("},\"timers\":{");
+        first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : timers.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            LatencyHistogram h = entry.getValue();
+            appendString(sb, entry.getKey());
+            sb.append(":{\"count\":").append(h.getCount())
+                    .append(",\"meanMs\":").append(h.getMean() / 1e6);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                sb.append(",\"").append(LABELS[i]).append("Ms\":")
+                        .append(h.getValueAtPercentile(PERCENTILES[i]) / 1e6);
+            }
+            sb.append(",\"maxMs\":").append(h.getMax() / 1e6).append('}');
+        }
+        sb.append("}}");
+        out.write(sb.toString());
+        out.write(System.lineSeparator());
+    }
+
+    private static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
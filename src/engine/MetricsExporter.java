@@ -0,0 +1,22 @@
+package engine;
+
+import java.io.IOException;
+import java.util.SortedMap;
+
+/**
+ * This interface receives a snapshot of the engine's metrics from
+ * {@link Metrics#export(MetricsExporter)}.
+ *
+ */
+public interface MetricsExporter {
+    /**
+     * Exports the metrics.
+     *
+     * @param counters  the counters by name
+     * @param timers    the latency histograms by name, in nanoseconds
+     * @throws IOException if the metrics cannot be written
+     */
+    void export(SortedMap<String, Long> counters,
+                SortedMap<String, LatencyHistogram> timers)
+            throws IOException;
+}
@@ -0,0 +1,170 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+/**
+ * This class provides the MovieLens user and movie metadata, loaded once
+ * into arrays indexed by ID, so that a list of k IDs is resolved in O(k).
+ *
+ * <p>
+ *     A catalog is immutable once loaded, so it can be shared by any number
+ *     of threads. The catalog of the bundled ml-100k files is loaded lazily
+ *     by the first call to getDefault(). The files are Latin-1, as published
+ *     by GroupLens.
+ *
+ */
+public final class MovieLensCatalog {
+    private static final String USERS_FILE = "data/ml-100k/u.user";
+    private static final String MOVIES_FILE = "data/ml-100k/u.item";
+
+    private static volatile MovieLensCatalog defaultCatalog = null;
+
+    // The records by ID; index 0 and missing IDs are null
+    private final String[] users;
+    private final String[] movies;
+
+    private MovieLensCatalog(String[] users, String[] movies) {
+        this.users = users;
+        this.movies = movies;
+    }
+
+    /**
+     * Returns the catalog of the ml-100k dataset, loading it on first use.
+     * If loading fails, the next call tries again.
+     *
+     * @return the catalog
+     * @throws IOException          if a file cannot be read
+     * @throws DataFormatException  if a file is malformed
+     */
+    public static MovieLensCatalog getDefault()
+            throws IOException, DataFormatException {
+        MovieLensCatalog catalog = defaultCatalog;
+        if (catalog == null) {
+            synchronized (MovieLensCatalog.class) {
+                catalog = defaultCatalog;
+                if (catalog == null) {
+                    catalog = load(USERS_FILE, MOVIES_FILE);
+                    defaultCatalog = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * Loads a catalog from a u.user and a u.item file.
+     *
+     * @param usersFile   the user file: id|age|gender|occupation|zip
+     * @param moviesFile  the movie file: id|title|release date|...
+     * @return            the catalog
+     * @throws IOException          if a file cannot be read
+     * @throws DataFormatException  if a file is malformed
+     */
+    public static MovieLensCatalog load(String usersFile, String moviesFile)
+            throws IOException, DataFormatException {
+        if (usersFile == null || moviesFile == null) {
+            throw new IllegalArgumentException();
+        }
+        return new MovieLensCatalog(readRecords(usersFile, 1),
+                readRecords(moviesFile, 3));
+    }
+
+    /**
+     * Reads a '|' separated file into an array indexed by the first field.
+     * Movies keep their first three fields (id|title|release date); users
+     * keep the whole line.
+     *
+     * @param filename   the file
+     * @param numFields  the fields to keep, or 1 for the whole line
+     * @return           the records by ID
+     * @throws IOException          if the file cannot be read
+     * @throws DataFormatException  if a line is malformed
+     */
+    private static String[] readRecords(String filename, int numFields)
+            throws IOException, DataFormatException {
+        String[] records = new String[16];
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(filename),
+                StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int bar = line.indexOf('|');
+                int end = bar;
+                for (int i = 1; i < numFields && end >= 0; i++) {
+                    end = line.indexOf('|', end + 1);
+                }
+                if (bar < 0 || end < 0) {
+                    throw new DataFormatException(filename + ": " + line);
+                }
+                int id;
+                try {
+                    id = Integer.parseInt(line.substring(0, bar));
+                } catch (NumberFormatException e) {
+                    throw new DataFormatException(filename + ": " + line);
+                }
+                if (id <= 0) {
+                    throw new DataFormatException(filename + ": " + line);
+                }
+                if (id >= records.length) {
+                    records = Arrays.copyOf(records,
+                            Math.max(2 * records.length, id + 1));
+                }
+                records[id] = numFields > 1 ? line.substring(0, end) : line;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns the metadata record of a user.
+     *
+     * @param userID  the MovieLens user ID
+     * @return        id|age|gender|occupation|zip, or null if unknown
+     */
+    public String getUser(int userID) {
+        return userID > 0 && userID < users.length ? users[userID] : null;
+    }
+
+    /**
+     * Returns the display record of a movie.
+     *
+     * @param movieID  the MovieLens movie ID
+     * @return         id|title|release date, or null if unknown
+     */
+    public String getMovie(int movieID) {
+        return movieID > 0 && movieID < movies.length ? movies[movieID]
+                : null;
+    }
+
+    /**
+     * Resolves a list of movie IDs to their display records. Unknown IDs
+     * are skipped.
+     *
+     * @param movieIDs  the MovieLens movie IDs
+     * @return          the records, in the order of the IDs
+     */
+    public String[] getMovies(List<Integer> movieIDs) {
+        if (movieIDs == null) {
+            throw new IllegalArgumentException();
+        }
+        String[] records = new String[movieIDs.size()];
+        int size = 0;
+        for (int movieID : movieIDs) {
+            String record = getMovie(movieID);
+            if (record != null) {
+                records[size++] = record;
+            }
+        }
+        return size == records.length ? records
+                : Arrays.copyOf(records, size);
+    }
+}
@@ -0,0 +1,48 @@
+package engine;
+
+/**
+ * This interface provides a reusable iterator over the out-edges of one
+ * node of a GraphStorage at a time:
+ *
+ * <pre>
+ *     cursor.reset(v);
+ *     while (cursor.next()) {
+ *         int w = cursor.target();
+ *         double weight = cursor.weight();
+ *     }
+ * </pre>
+ *
+ * <p>
+ *     Edges come in ascending order of target index. A cursor is not
+ *     thread-safe.
+ *
+ */
+public interface NeighborCursor {
+    /**
+     * Moves the cursor to just before the first out-edge of a node.
+     *
+     * @param v  the index of the node
+     */
+    void reset(int v);
+
+    /**
+     * Moves to the next out-edge.
+     *
+     * @return false if there are no more out-edges
+     */
+    boolean next();
+
+    /**
+     * Returns the target of the current edge.
+     *
+     * @return the index of the target node
+     */
+    int target();
+
+    /**
+     * Returns the weight of the current edge.
+     *
+     * @return the weight
+     */
+    double weight();
+}
@@ -1,5 +1,6 @@
 package engine;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -28,6 +29,15 @@ import java.util.Set;
         return new HashSet<>(edges);
     }
 
+    /**
+     * Returns a read-only view of this Node's edges, without copying them.
+     *
+     * @return an unmodifiable view of the outgoing edges
+     */
+    Set<Edge> getEdgeView() {
+        return Collections.unmodifiableSet(edges);
+    }
+
     public int getID() {
         return id;
     }
@@ -0,0 +1,14 @@
+package engine;
+
+/**
+ * The locality-improving node orderings offered by the Graph Toolkit.
+ *
+ */
+public enum NodeOrdering {
+    /** Descending total degree, so the hubs share a few cache lines. */
+    DEGREE,
+    /** Reverse Cuthill-McKee, which keeps neighbors close in ID. */
+    RCM,
+    /** Gorder: nodes that share neighbors are placed in one window. */
+    GORDER
+}
@@ -0,0 +1,596 @@
+package engine;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * This class provides a GraphStorage whose node IDs, CSR offsets, edge
+ * targets and edge weights all live in direct ByteBuffers, outside the
+ * heap. A graph of any size then costs the garbage collector a handful of
+ * objects, and its edges add nothing to GC pauses.
+ *
+ * <p>
+ *     The layout is the one IndexedGraph uses: nodes are indexed in
+ *     ascending ID order, and the out-edges of node v are entries
+ *     offsets[v] to offsets[v + 1] - 1 of targets and weights, sorted by
+ *     target. Offsets are longs, so the edge count is not limited to an
+ *     int. Each array is split into chunks of at most 1 GB, as a single
+ *     ByteBuffer cannot exceed 2 GB.
+ *
+ * <p>
+ *     The memory is released by close(), not by the garbage collector, so
+ *     an OffHeapGraph should be used in a try-with-resources block. Once
+ *     closed, every read fails. Closing while another thread is still
+ *     reading is not allowed.
+ *
+ * <p>
+ *     Graphs are built with a Builder, which is an EdgeSink, so that the
+ *     GraphGenerators can stream straight into it. The builder keeps the
+ *     edges off the heap as well; the heap holds O(n) ints while the CSR
+ *     form is built.
+ *
+ */
+public final class OffHeapGraph implements GraphStorage {
+    private final int n;
+    private final long m;
+    private final boolean negativeWeights;
+    private Chunks ids;
+    private Chunks offsets;
+    private Chunks targets;
+    private Chunks weights;
+
+    private OffHeapGraph(Chunks ids, Chunks offsets, Chunks targets,
+                         Chunks weights, int n, long m,
+                         boolean negativeWeights) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.n = n;
+        this.m = m;
+        this.negativeWeights = negativeWeights;
+    }
+
+    /**
+     * Copies a Graph into off-heap storage.
+     *
+     * @param g  the Graph
+     * @return   the off-heap copy, which the caller must close
+     */
+    public static OffHeapGraph of(Graph g) {
+        if (g == null) {
+            throw new IllegalArgumentException();
+        }
+        Builder builder = new Builder();
+        try {
+            for (Node node : g.getNodeView()) {
+                builder.addNode(node.getID());
+                for (Edge e : node.getEdgeView()) {
+                    builder.addEdge(node.getID(), e.getTgt().getID(),
+                            e.getWeight());
+                }
+            }
+            return builder.build();
+        } finally {
+            builder.close();
+        }
+    }
+
+    /**
+     * Creates an empty builder.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public int numNodes() {
+        return n;
+    }
+
+    @Override
+    public long numEdges() {
+        return m;
+    }
+
+    @Override
+    public int getID(int v) {
+        return ids.getInt(v);
+    }
+
+    @Override
+    public int indexOf(int id) {
+        int lo = 0;
+        int hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midID = ids.getInt(mid);
+            if (midID < id) {
+                lo = mid + 1;
+            } else if (midID > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getOutDegree(int v) {
+        return (int) (offsets.getLong(v + 1) - offsets.getLong(v));
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        if (ids == null) {
+            throw new IllegalStateException("Closed");
+        }
+        return new Cursor();
+    }
+
+    @Override
+    public boolean hasNegativeWeights() {
+        return negativeWeights;
+    }
+
+    /**
+     * Builds the transpose off the heap. Sources are visited in order, so
+     * every row comes out sorted.
+     *
+     * @return the reversed graph, which the caller must close
+     */
+    @Override
+    public OffHeapGraph transpose() {
+        if (ids == null) {
+            throw new IllegalStateException("Closed");
+        }
+
+        Chunks revIDs = Chunks.ints(n);
+        Chunks revOffsets = Chunks.longs(n + 1L);
+        Chunks revTargets = Chunks.ints(m);
+        Chunks revWeights = Chunks.doubles(m);
+        for (int v = 0; v < n; v++) {
+            revIDs.putInt(v, ids.getInt(v));
+        }
+
+        long[] fill = new long[n];
+        for (long e = 0; e < m; e++) {
+            fill[targets.getInt(e)]++;
+        }
+        long total = 0;
+        for (int v = 0; v < n; v++) {
+            revOffsets.putLong(v, total);
+            long degree = fill[v];
+            fill[v] = total;
+            total += degree;
+        }
+        revOffsets.putLong(n, total);
+
+        for (int u = 0; u < n; u++) {
+            long end = offsets.getLong(u + 1);
+            for (long e = offsets.getLong(u); e < end; e++) {
+                long pos = fill[targets.getInt(e)]++;
+                revTargets.putInt(pos, u);
+                revWeights.putDouble(pos, weights.getDouble(e));
+            }
+        }
+        return new OffHeapGraph(revIDs, revOffsets, revTargets, revWeights, n,
+                m, negativeWeights);
+    }
+
+    /**
+     * Frees the off-heap memory. Closing twice does nothing.
+     */
+    @Override
+    public void close() {
+        if (ids == null) {
+            return;
+        }
+        Chunks[] all = {ids, offsets, targets, weights};
+        ids = null;
+        offsets = null;
+        targets = null;
+        weights = null;
+        for (Chunks chunks : all) {
+            chunks.free();
+        }
+    }
+
+    /**
+     * This class provides a cursor over the off-heap CSR arrays.
+     */
+    private final class Cursor implements NeighborCursor {
+        private long pos;
+        private long end;
+
+        @Override
+        public void reset(int v) {
+            pos = offsets.getLong(v) - 1;
+            end = offsets.getLong(v + 1);
+        }
+
+        @Override
+        public boolean next() {
+            return ++pos < end;
+        }
+
+        @Override
+        public int target() {
+            return targets.getInt(pos);
+        }
+
+        @Override
+        public double weight() {
+            return weights.getDouble(pos);
+        }
+    }
+
+    /**
+     * This class collects nodes and edges off the heap and turns them into
+     * an OffHeapGraph. Nodes that only appear as endpoints of edges are
+     * added automatically. A Builder should be closed once it is no longer
+     * needed, to free its buffers.
+     */
+    public static final class Builder implements EdgeSink, AutoCloseable {
+        private Chunks srcs = Chunks.ints(0);
+        private Chunks tgts = Chunks.ints(0);
+        private Chunks edgeWeights = Chunks.doubles(0);
+        private Chunks nodes = Chunks.ints(0);
+        private long numEdges = 0;
+        private long numNodes = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a node, which may have no edges.
+         *
+         * @param id  the node ID
+         * @return    this builder
+         */
+        public Builder addNode(int id) {
+            if (nodes == null) {
+                throw new IllegalStateException("Closed");
+            }
+            nodes.ensureCapacity(numNodes + 1);
+            nodes.putInt(numNodes++, id);
+            return this;
+        }
+
+        @Override
+        public void addEdge(int srcID, int tgtID, double weight) {
+            if (srcs == null) {
+                throw new IllegalStateException("Closed");
+            }
+            srcs.ensureCapacity(numEdges + 1);
+            tgts.ensureCapacity(numEdges + 1);
+            edgeWeights.ensureCapacity(numEdges + 1);
+            srcs.putInt(numEdges, srcID);
+            tgts.putInt(numEdges, tgtID);
+            edgeWeights.putDouble(numEdges, weight);
+            numEdges++;
+        }
+
+        /**
+         * Builds the graph. The builder can keep adding edges afterwards,
+         * for a larger graph.
+         *
+         * @return the graph, which the caller must close
+         */
+        public OffHeapGraph build() {
+            if (srcs == null) {
+                throw new IllegalStateException("Closed");
+            }
+
+            // The distinct IDs, sorted, are the node indices
+            IntSet distinct = new IntSet();
+            for (long i = 0; i < numNodes; i++) {
+                distinct.add(nodes.getInt(i));
+            }
+            for (long e = 0; e < numEdges; e++) {
+                distinct.add(srcs.getInt(e));
+                distinct.add(tgts.getInt(e));
+            }
+            int[] sorted = distinct.toSortedArray();
+            distinct = null;
+            int n = sorted.length;
+
+            long[] fill = new long[n];
+            for (long e = 0; e < numEdges; e++) {
+                fill[Arrays.binarySearch(sorted, srcs.getInt(e))]++;
+            }
+
+            Chunks ids = Chunks.ints(n);
+            Chunks offsets = Chunks.longs(n + 1L);
+            Chunks targets = Chunks.ints(numEdges);
+            Chunks weights = Chunks.doubles(numEdges);
+            for (int v = 0; v < n; v++) {
+                ids.putInt(v, sorted[v]);
+            }
+            long total = 0;
+            for (int v = 0; v < n; v++) {
+                offsets.putLong(v, total);
+                long degree = fill[v];
+                fill[v] = total;
+                total += degree;
+            }
+            offsets.putLong(n, total);
+
+            boolean negative = false;
+            for (long e = 0; e < numEdges; e++) {
+                int u = Arrays.binarySearch(sorted, srcs.getInt(e));
+                long pos = fill[u]++;
+                double w = edgeWeights.getDouble(e);
+                targets.putInt(pos, Arrays.binarySearch(sorted,
+                        tgts.getInt(e)));
+                weights.putDouble(pos, w);
+                negative |= w < 0;
+            }
+
+            // Sort every row by target, on the heap one row at a time
+            for (int v = 0; v < n; v++) {
+                long from = offsets.getLong(v);
+                long to = offsets.getLong(v + 1);
+                if (isSorted(targets, from, to)) {
+                    continue;
+                }
+                int[] rowTargets = new int[(int) (to - from)];
+                double[] rowWeights = new double[rowTargets.length];
+                for (int i = 0; i < rowTargets.length; i++) {
+                    rowTargets[i] = targets.getInt(from + i);
+                    rowWeights[i] = weights.getDouble(from + i);
+                }
+                IndexedGraph.sortRow(rowTargets, rowWeights, 0,
+                        rowTargets.length);
+                for (int i = 0; i < rowTargets.length; i++) {
+                    targets.putInt(from + i, rowTargets[i]);
+                    weights.putDouble(from + i, rowWeights[i]);
+                }
+            }
+            return new OffHeapGraph(ids, offsets, targets, weights, n,
+                    numEdges, negative);
+        }
+
+        /**
+         * Frees the builder's buffers. Closing twice does nothing.
+         */
+        @Override
+        public void close() {
+            if (srcs == null) {
+                return;
+            }
+            srcs.free();
+            tgts.free();
+            edgeWeights.free();
+            nodes.free();
+            srcs = null;
+            tgts = null;
+            edgeWeights = null;
+            nodes = null;
+        }
+
+        private static boolean isSorted(Chunks targets, long from, long to) {
+            for (long i = from + 1; i < to; i++) {
+                if (targets.getInt(i - 1) > targets.getInt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * This class provides an open-addressing set of ints, for collecting
+     * the distinct node IDs without boxing them.
+     */
+    private static final class IntSet {
+        private static final int EMPTY = Integer.MIN_VALUE;
+        private int[] table = new int[16];
+        private int size = 0;
+        private boolean hasEmpty = false;
+
+        IntSet() {
+            Arrays.fill(table, EMPTY);
+        }
+
+        void add(int value) {
+            if (value == EMPTY) {
+                if (!hasEmpty) {
+                    hasEmpty = true;
+                    size++;
+                }
+                return;
+            }
+            if (2 * (size + 1) > table.length) {
+                grow();
+            }
+            if (insert(table, value)) {
+                size++;
+            }
+        }
+
+        int[] toSortedArray() {
+            int[] values = new int[size];
+            int i = 0;
+            if (hasEmpty) {
+                values[i++] = EMPTY;
+            }
+            for (int value : table) {
+                if (value != EMPTY) {
+                    values[i++] = value;
+                }
+            }
+            Arrays.sort(values);
+            return values;
+        }
+
+        private void grow() {
+            int[] larger = new int[2 * table.length];
+            Arrays.fill(larger, EMPTY);
+            for (int value : table) {
+                if (value != EMPTY) {
+                    insert(larger, value);
+                }
+            }
+            table = larger;
+        }
+
+        private static boolean insert(int[] table, int value) {
+            int mask = table.length - 1;
+            // Fibonacci hashing: the top log2(length) bits of the product
+            int i = (value * 0x9E3779B9)
+                    >>> Integer.numberOfLeadingZeros(mask);
+            while (table[i] != EMPTY) {
+                if (table[i] == value) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = value;
+            return true;
+        }
+    }
+
+    /**
+     * This class provides an array of fixed-size elements indexed by long,
+     * stored in direct ByteBuffers of at most 1 GB each. Only the last
+     * chunk may be smaller than the rest; it grows by doubling.
+     */
+    private static final class Chunks {
+        private static final int CHUNK_BYTES_LOG = 30;
+        // sun.misc.Unsafe.invokeCleaner, to free a direct buffer at once
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> c = Class.forName("sun.misc.Unsafe");
+                Field f = c.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                unsafe = f.get(null);
+                invokeCleaner = c.getMethod("invokeCleaner",
+                        ByteBuffer.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Buffers are then freed when they are garbage collected
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        private final int elementShift;
+        private final int shift;
+        private final long mask;
+        private ByteBuffer[] chunks = new ByteBuffer[0];
+        private long capacity = 0;
+
+        private Chunks(int elementShift, long length) {
+            this.elementShift = elementShift;
+            this.shift = CHUNK_BYTES_LOG - elementShift;
+            this.mask = (1L << shift) - 1;
+            ensureCapacity(length);
+        }
+
+        static Chunks ints(long length) {
+            return new Chunks(2, length);
+        }
+
+        static Chunks longs(long length) {
+            return new Chunks(3, length);
+        }
+
+        static Chunks doubles(long length) {
+            return new Chunks(3, length);
+        }
+
+        int getInt(long i) {
+            return chunks[(int) (i >>> shift)].getInt((int) (i & mask) << 2);
+        }
+
+        long getLong(long i) {
+            return chunks[(int) (i >>> shift)].getLong((int) (i & mask) << 3);
+        }
+
+        double getDouble(long i) {
+            return chunks[(int) (i >>> shift)]
+                    .getDouble((int) (i & mask) << 3);
+        }
+
+        void putInt(long i, int value) {
+            chunks[(int) (i >>> shift)].putInt((int) (i & mask) << 2, value);
+        }
+
+        void putLong(long i, long value) {
+            chunks[(int) (i >>> shift)].putLong((int) (i & mask) << 3, value);
+        }
+
+        void putDouble(long i, double value) {
+            chunks[(int) (i >>> shift)].putDouble((int) (i & mask) << 3,
+                    value);
+        }
+
+        /**
+         * Grows the array to hold at least length elements. A fresh array
+         * is allocated at exactly the requested length.
+         *
+         * @param length  the number of elements needed
+         */
+        void ensureCapacity(long length) {
+            long perChunk = 1L << shift;
+            while (capacity < length) {
+                int last = chunks.length - 1;
+                long lastSize = last < 0 ? perChunk
+                        : chunks[last].capacity() >> elementShift;
+                if (lastSize < perChunk) {
+                    // Grow the partial last chunk
+                    long size = Math.min(perChunk, Math.max(2 * lastSize,
+                            length - (long) last * perChunk));
+                    ByteBuffer larger = allocate(size);
+                    ByteBuffer old = chunks[last];
+                    old.clear();
+                    larger.put(old);
+                    larger.clear();
+                    chunks[last] = larger;
+                    free(old);
+                    capacity = (long) last * perChunk + size;
+                } else {
+                    long size = Math.min(perChunk, length - capacity);
+                    chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                    chunks[chunks.length - 1] = allocate(size);
+                    capacity += size;
+                }
+            }
+        }
+
+        void free() {
+            for (ByteBuffer chunk : chunks) {
+                free(chunk);
+            }
+            chunks = null;
+            capacity = 0;
+        }
+
+        private ByteBuffer allocate(long size) {
+            return ByteBuffer.allocateDirect((int) (size << elementShift))
+                    .order(ByteOrder.nativeOrder());
+        }
+
+        private static void free(ByteBuffer buffer) {
+            if (INVOKE_CLEANER == null) {
+                return;
+            }
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException e) {
+                // Left to the garbage collector
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package engine;
+
+/**
+ * This interface receives convergence telemetry from the block PageRank
+ * solver, once per iteration.
+ *
+ */
+public interface PageRankListener {
+    /**
+     * Called after every iteration, on the calling thread of the solver.
+     *
+     * @param iteration       the iteration just finished, starting at 1
+     * @param residual        the L1 norm of the change in the scores during
+     *                        that iteration
+     * @param elapsedNanos    the time since the solver started
+     * @param edgesPerSecond  the edges relaxed per second during that
+     *                        iteration
+     */
+    void onIteration(int iteration, double residual, long elapsedNanos,
+                     double edgesPerSecond);
+}
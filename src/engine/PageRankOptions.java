@@ -0,0 +1,165 @@
+package engine;
+
+/**
+ * This class provides the settings of the block PageRank solver. Every
+ * setter returns the options, so they can be chained:
+ *
+ * <pre>
+ *     new PageRankOptions().setGaussSeidel(true).setTolerance(1e-8)
+ * </pre>
+ *
+ */
+public class PageRankOptions {
+    private double dampingFactor = 0.85;
+    private double tolerance = 1e-10;
+    private int maxIterations = 200;
+    private boolean gaussSeidel = false;
+    private int extrapolationPeriod = 0;
+    private int numBlocks = 4 * Runtime.getRuntime().availableProcessors();
+    private PageRankListener listener = null;
+
+    /**
+     * Sets the damping factor.
+     *
+     * @param dampingFactor  the damping factor, in (0, 1); default 0.85
+     * @return               these options
+     */
+    public PageRankOptions setDampingFactor(double dampingFactor) {
+        if (!(dampingFactor > 0 && dampingFactor < 1)) {
+            throw new IllegalArgumentException();
+        }
+        this.dampingFactor = dampingFactor;
+        return this;
+    }
+
+    /**
+     * Sets the convergence threshold: iteration stops once the L1 norm of
+     * the change in the scores drops below it.
+     *
+     * @param tolerance  the tolerance, positive; default 1e-10
+     * @return           these options
+     */
+    public PageRankOptions setTolerance(double tolerance) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException();
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * Sets the most iterations to run, converged or not.
+     *
+     * @param maxIterations  the iteration limit, positive; default 200
+     * @return               these options
+     */
+    public PageRankOptions setMaxIterations(int maxIterations) {
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * Chooses between Jacobi (power iteration) updates and Gauss-Seidel
+     * updates, which use the new scores of earlier nodes of the same block
+     * within an iteration.
+     *
+     * @param gaussSeidel  true for Gauss-Seidel; default false
+     * @return             these options
+     */
+    public PageRankOptions setGaussSeidel(boolean gaussSeidel) {
+        this.gaussSeidel = gaussSeidel;
+        return this;
+    }
+
+    /**
+     * Sets how often Aitken extrapolation is applied to the last three
+     * iterates.
+     *
+     * @param extrapolationPeriod  extrapolate every this many iterations,
+     *                             at least 3, or 0 to never extrapolate;
+     *                             default 0
+     * @return                     these options
+     */
+    public PageRankOptions setExtrapolationPeriod(int extrapolationPeriod) {
+        if (extrapolationPeriod != 0 && extrapolationPeriod < 3) {
+            throw new IllegalArgumentException();
+        }
+        this.extrapolationPeriod = extrapolationPeriod;
+        return this;
+    }
+
+    /**
+     * Sets the number of vertex blocks, which are processed in parallel.
+     *
+     * @param numBlocks  the number of blocks, positive; default four per
+     *                   available processor
+     * @return           these options
+     */
+    public PageRankOptions setNumBlocks(int numBlocks) {
+        if (numBlocks <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.numBlocks = numBlocks;
+        return this;
+    }
+
+    /**
+     * Sets the listener that receives per-iteration telemetry.
+     *
+     * @param listener  the listener, or null for none; default null
+     * @return          these options
+     */
+    public PageRankOptions setListener(PageRankListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Returns a copy of these options with another listener.
+     *
+     * @param other  the listener of the copy
+     * @return       the copy
+     */
+    PageRankOptions withListener(PageRankListener other) {
+        PageRankOptions copy = new PageRankOptions();
+        copy.dampingFactor = dampingFactor;
+        copy.tolerance = tolerance;
+        copy.maxIterations = maxIterations;
+        copy.gaussSeidel = gaussSeidel;
+        copy.extrapolationPeriod = extrapolationPeriod;
+        copy.numBlocks = numBlocks;
+        copy.listener = other;
+        return copy;
+    }
+
+    public double getDampingFactor() {
+        return dampingFactor;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public boolean isGaussSeidel() {
+        return gaussSeidel;
+    }
+
+    public int getExtrapolationPeriod() {
+        return extrapolationPeriod;
+    }
+
+    public int getNumBlocks() {
+        return numBlocks;
+    }
+
+    public PageRankListener getListener() {
+        return listener;
+    }
+}
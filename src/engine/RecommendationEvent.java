@@ -0,0 +1,42 @@
+package engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This class provides the Java Flight Recorder event emitted for every
+ * Recommender.collabFilter request. Its duration covers the request itself;
+ * the similarity scan that produced its scores is timed separately, since
+ * callers run it first, and is reported when it ran on the same thread for
+ * the same user.
+ *
+ */
+@Name("engine.Recommendation")
+@Label("Recommendation Request")
+@Category({"Recommendation Engine", "Recommender"})
+@Description("A collaborative filtering request")
+@StackTrace(false)
+final class RecommendationEvent extends Event {
+    @Label("User")
+    int userID;
+
+    @Label("Similar Users")
+    @Description("The number of similar users whose ratings were used")
+    int neighbors;
+
+    @Label("Candidates")
+    @Description("The items rated by the similar users but not the user")
+    int candidates;
+
+    @Label("Results")
+    int results;
+
+    @Label("Similarity Scan Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long similarityScanNanos;
+}
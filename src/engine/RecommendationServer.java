@@ -0,0 +1,434 @@
+package engine;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class provides a small HTTP server for the Recommender, built on the
+ * JDK's com.sun.net.httpserver. Every endpoint answers GET requests with
+ * JSON:
+ *
+ * <pre>
+ *     /recommend?user=1&amp;metric=pearson&amp;neighbors=10&amp;count=5
+ *         {"user":1,"items":[...]}
+ *     /similar?user=1&amp;metric=jaccard&amp;count=10
+ *         {"user":1,"similar":[{"user":2,"score":0.5},...]}
+ *     /path?src=1&amp;tgt=2
+ *         {"src":1,"tgt":2,"path":[...]}
+ *     /pagerank?count=10
+ *         {"ranks":[{"node":1,"rank":0.01},...]}
+ * </pre>
+ *
+ * <p>
+ *     metric is pearson (the default) or jaccard. Bad parameters get a 400
+ *     and unknown paths a 404.
+ *
+ * <p>
+ *     The server works on its own copy of the Graph, which is never
+ *     modified, so every request shares one model without locking. Each
+ *     request runs on its own virtual thread when the JDK has them (21 and
+ *     later) and on a cached thread pool otherwise. Identical requests that
+ *     arrive while one of them is being computed share its response
+ *     instead of recomputing it.
+ *
+ */
+public class RecommendationServer {
+    private final Graph g;
+    private final Recommender recommender;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, CompletableFuture<byte[]>> inFlight =
+            new ConcurrentHashMap<>();
+    // The nodes by descending PageRank, computed by the first request that
+    // needs them
+    private volatile List<Map.Entry<Integer, Double>> ranks = null;
+
+    /**
+     * Creates a server for a rating graph, bound to a port but not started.
+     *
+     * @param og    the Graph; the server keeps its own copy
+     * @param port  the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public RecommendationServer(Graph og, int port) throws IOException {
+        if (og == null || port < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.g = og.copyOf(false);
+        this.recommender = new Recommender(g);
+        this.executor = newExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per task, or a cached
+     * thread pool on JDKs without virtual threads. The factory method is
+     * looked up reflectively so that the class still compiles for older
+     * targets.
+     *
+     * @return the executor
+     */
+    static ExecutorService newExecutor() {
+        try {
+            Method m = Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting up to a second for running requests.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        byte[] body;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                status = 405;
+                body = error("Only GET is supported");
+            } else {
+                body = coalesce(exchange.getRequestURI().getPath(),
+                        exchange.getRequestURI().getRawQuery());
+            }
+        } catch (NotFoundException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage() == null ? "Bad request"
+                    : e.getMessage());
+        } catch (RuntimeException e) {
+            // The details are for the server's log, not the client
+            e.printStackTrace();
+            status = 500;
+            body = error("Internal server error");
+        }
+
+        exchange.getResponseHeaders().set("Content-Type",
+                "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Answers a request, sharing the answer of an identical request that is
+     * still being computed. The key is the path and the parameters in name
+     * order, so parameter order does not matter.
+     *
+     * @param path   the request path
+     * @param query  the raw query string, or null
+     * @return       the response body
+     */
+    private byte[] coalesce(String path, String query) {
+        Map<String, String> params = parseQuery(query);
+        String key = path + "?" + params;
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return join(running);
+        }
+
+        try {
+            mine.complete(route(path, params));
+        } catch (RuntimeException | Error e) {
+            // Never leave the requests waiting on us hanging
+            mine.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, mine);
+        }
+        return join(mine);
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private byte[] route(String path, Map<String, String> params) {
+        switch (path) {
+            case "/recommend":
+                return recommend(params);
+            case "/similar":
+                return similar(params);
+            case "/path":
+                return path(params);
+            case "/pagerank":
+                return pageRank(params);
+            default:
+                throw new NotFoundException("No such endpoint: " + path);
+        }
+    }
+
+    private byte[] recommend(Map<String, String> params) {
+        int userID = getUser(params);
+        int neighbors = getInt(params, "neighbors", 10);
+        int count = getInt(params, "count", 5);
+        TreeMap<Double, List<Node>> scores = getScores(params, userID);
+        int others = 0;
+        for (List<Node> users : scores.values()) {
+            others += users.size();
+        }
+        if (neighbors > others) {
+            throw new IllegalArgumentException("Too many neighbors: "
+                    + neighbors + " (at most " + others + ")");
+        }
+        List<Integer> items = recommender.collabFilter(userID, scores,
+                neighbors, count);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"user\":").append(userID).append(",\"items\":");
+        appendList(json, items);
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] similar(Map<String, String> params) {
+        int userID = getUser(params);
+        int count = getInt(params, "count", 10);
+        TreeMap<Double, List<Node>> scores = getScores(params, userID);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"user\":").append(userID).append(",\"similar\":[");
+        int found = 0;
+        for (Map.Entry<Double, List<Node>> entry
+                : scores.descendingMap().entrySet()) {
+            if (entry.getKey().isNaN()) {
+                continue;
+            }
+            for (Node node : entry.getValue()) {
+                if (found == count) {
+                    break;
+                }
+                if (found++ > 0) {
+                    json.append(',');
+                }
+                json.append("{\"user\":").append(node.getID())
+                        .append(",\"score\":").append(entry.getKey())
+                        .append('}');
+            }
+            if (found == count) {
+                break;
+            }
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] path(Map<String, String> params) {
+        int src = getInt(params, "src", -1);
+        int tgt = getInt(params, "tgt", -1);
+        if (g.getNodeByID(src) == null || g.getNodeByID(tgt) == null) {
+            throw new IllegalArgumentException("No such node");
+        }
+        List<Integer> path = GraphToolkit.bfs(g, src, tgt, false);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"src\":").append(src).append(",\"tgt\":").append(tgt)
+                .append(",\"path\":");
+        appendList(json, path);
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] pageRank(Map<String, String> params) {
+        int count = getInt(params, "count", 10);
+        List<Map.Entry<Integer, Double>> sorted = getRanks();
+
+        StringBuilder json = new StringBuilder("{\"ranks\":[");
+        for (int i = 0; i < Math.min(count, sorted.size()); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"node\":").append(sorted.get(i).getKey())
+                    .append(",\"rank\":").append(sorted.get(i).getValue())
+                    .append('}');
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<Map.Entry<Integer, Double>> getRanks() {
+        List<Map.Entry<Integer, Double>> sorted = ranks;
+        if (sorted == null) {
+            synchronized (this) {
+                sorted = ranks;
+                if (sorted == null) {
+                    sorted = new ArrayList<>(GraphToolkit.getPageRank(g,
+                            new PageRankOptions()).entrySet());
+                    sorted.sort(Collections.reverseOrder(
+                            Map.Entry.comparingByValue()));
+                    sorted = Collections.unmodifiableList(sorted);
+                    ranks = sorted;
+                }
+            }
+        }
+        return sorted;
+    }
+
+    private int getUser(Map<String, String> params) {
+        int userID = getInt(params, "user", -1);
+        if (recommender.getUser(userID) == null) {
+            throw new IllegalArgumentException("No such user: " + userID);
+        }
+        return userID;
+    }
+
+    private TreeMap<Double, List<Node>> getScores(Map<String, String> params,
+                                                  int userID) {
+        String metric = params.getOrDefault("metric", "pearson");
+        switch (metric) {
+            case "pearson":
+                return recommender.getPearsonScores(userID);
+            case "jaccard":
+                return recommender.getJaccardScores(userID);
+            default:
+                throw new IllegalArgumentException("No such metric: "
+                        + metric);
+        }
+    }
+
+    private static int getInt(Map<String, String> params, String name,
+                              int defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            if (defaultValue < 0) {
+                throw new IllegalArgumentException("Missing " + name);
+            }
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Negative " + name);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Parses a query string into a map sorted by name.
+     *
+     * @param query  the raw query string, or null
+     * @return       the parameters
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new TreeMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void appendList(StringBuilder json, List<Integer> values) {
+        json.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(values.get(i));
+        }
+        json.append(']');
+    }
+
+    private static byte[] error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        for (char c : message.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Thrown for requests to an unknown path.
+     */
+    private static class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Serves the MovieLens data.
+     *
+     * @param args  the port; default 8080
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        RecommendationServer server = new RecommendationServer(
+                DataReader.readMovieLensData(), port);
+        server.start();
+        System.out.println("Serving on port " + server.getPort());
+    }
+}
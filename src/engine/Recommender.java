@@ -1,18 +1,15 @@
 package engine;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.zip.DataFormatException;
 
 /**
@@ -65,6 +62,15 @@ public class Recommender {
     private Set<Node> users = new HashSet<>();
     private Set<Node> items = new HashSet<>();
     private int size = 0;
+    private double minRating = Double.POSITIVE_INFINITY;
+    private double maxRating = Double.NEGATIVE_INFINITY;
+    // The ratings as gap-encoded rows for the similarity scans, or null if
+    // the ratings cannot be stored exactly in one byte each
+    private final CompressedGraph ratings;
+    // The user and duration of the last similarity scan on each thread, for
+    // RecommendationEvent; only kept while JFR records that event
+    private final ThreadLocal<long[]> lastScan =
+            ThreadLocal.withInitial(() -> new long[]{-1, 0});
 
     /**
      * Creates a Recommender object from a Graph.
@@ -79,10 +85,31 @@ public class Recommender {
         for (Node node : nodes) {
             if (node.getNeighbors().size() > 0) {
                 users.add(node);
+                for (Edge e : node.getEdgeView()) {
+                    minRating = Math.min(minRating, e.getWeight());
+                    maxRating = Math.max(maxRating, e.getWeight());
+                }
             } else {
                 items.add(node);
             }
         }
+        if (users.isEmpty()) {
+            minRating = 0.0;
+            maxRating = 0.0;
+        }
+        CompressedGraph compressed = CompressedGraph.of(g);
+        this.ratings = compressed.isLossless() ? compressed : null;
+    }
+
+    /**
+     * Returns the Node of a user, for the evaluation harness.
+     *
+     * @param userID  the ID of the user
+     * @return        the Node, or null if the user has no ratings
+     */
+    Node getUser(int userID) {
+        Node node = g.getNodeByID(userID);
+        return node != null && users.contains(node) ? node : null;
     }
 
     /**
@@ -102,9 +129,75 @@ public class Recommender {
             throw new IllegalArgumentException();
         }
         
+        long start = Metrics.start();
+        RecommendationEvent event = new RecommendationEvent();
+        event.begin();
         Node user = g.getNodeByID(userID);
 
-        Set<Node> top = getTopMatches(scores, numUsers);
+        long phase = Metrics.start();
+        Set<Node> top = getTopMatches(scores, numUsers).keySet();
+        Metrics.stop("recommender.topK", phase);
+
+        List<Integer> out = recommend(user, top, numRecommends, event);
+        Metrics.stop("recommender.collabFilter", start);
+        Metrics.count("recommender.collabFilter.calls");
+
+        event.end();
+        if (event.shouldCommit()) {
+            long[] scan = lastScan.get();
+            event.userID = userID;
+            event.neighbors = top.size();
+            event.results = out.size();
+            event.similarityScanNanos = scan[0] == userID ? scan[1] : 0;
+            event.commit();
+        }
+        return out;
+    }
+
+    /**
+     * Predicts the rating a user would give an item, from the ratings of
+     * the most similar users. Like collabFilter, this consumes the top
+     * entries of scores.
+     *
+     * @param userID    the user
+     * @param itemID    the item
+     * @param scores    the scores to use for collaborative filtering
+     * @param numUsers  the number of similar users to use
+     * @return          the predicted rating
+     */
+    public double predictRating(int userID, int itemID,
+            TreeMap<Double, List<Node>> scores, int numUsers) {
+        if (scores == null) {
+            throw new IllegalArgumentException();
+        }
+
+        Node user = g.getNodeByID(userID);
+        if (user == null) {
+            throw new IllegalArgumentException();
+        }
+
+        return predict(user, new int[]{itemID},
+                getTopMatches(scores, numUsers))[0];
+    }
+
+    /**
+     * Ranks the items rated by the top users but not by the given user.
+     * An item's score is the total of its ratings divided by the square
+     * root of the number of raters.
+     *
+     * @param user           the user
+     * @param top            the most similar users
+     * @param numRecommends  the number of recommendations (if any) to return
+     * @return               the IDs of the recommended items, best first
+     */
+    List<Integer> recommend(Node user, Set<Node> top, int numRecommends) {
+        return recommend(user, top, numRecommends, null);
+    }
+
+    private List<Integer> recommend(Node user, Set<Node> top,
+                                    int numRecommends,
+                                    RecommendationEvent event) {
+        long phase = Metrics.start();
         Set<Node> neighbors = user.getNeighbors();
         Map<Node, Entry> recommends = new HashMap<>();
 
@@ -130,7 +223,13 @@ public class Recommender {
             Entry entry = recommends.get(node);
             entry.setWeight(entry.getWeight() / Math.sqrt(entry.getNumVoters()));
         }
+        Metrics.stop("recommender.aggregate", phase);
+        Metrics.count("recommender.candidates", recommends.size());
+        if (event != null) {
+            event.candidates = recommends.size();
+        }
         
+        phase = Metrics.start();
         LinkedList<Entry> sorted = new LinkedList<>(recommends.values());
         Collections.sort(sorted);
 
@@ -146,6 +245,7 @@ public class Recommender {
                 counter++;
             }
         }
+        Metrics.stop("recommender.sort", phase);
 
         return out;
     }
@@ -158,11 +258,17 @@ public class Recommender {
      * @return        a TreeMap of scores to a list of Nodes with that score
      */
     public TreeMap<Double, List<Node>> getPearsonScores(int userID) {
+        long start = Metrics.start();
+        boolean traced = new RecommendationEvent().isEnabled();
+        long scanStart = traced ? System.nanoTime() : 0L;
         Node user = g.getNodeByID(userID);
+        RatingRow row = ratings == null || user == null ? null
+                : new RatingRow(ratings, ratings.indexOf(userID));
         TreeMap<Double, List<Node>> scores = new TreeMap<>();
         for (Node node : users) {
             if (!node.equals(user)) {
-                double score = getPearsonCoeff(user, node);
+                double score = row == null ? getPearsonCoeff(user, node)
+                        : row.pearson(ratings.indexOf(node.getID()));
                 if (scores.containsKey(score)) {
                     scores.get(score).add(node);
                 } else {
@@ -173,6 +279,13 @@ public class Recommender {
             }
         }
         
+        Metrics.stop("recommender.similarityScan", start);
+        Metrics.count("recommender.similarityScan.users", users.size());
+        if (traced) {
+            long[] scan = lastScan.get();
+            scan[0] = userID;
+            scan[1] = System.nanoTime() - scanStart;
+        }
         return scores;
     }
     
@@ -184,11 +297,17 @@ public class Recommender {
      * @return        a TreeMap of scores to a list of Nodes with that score
      */
     public TreeMap<Double, List<Node>> getJaccardScores(int userID) {
+        long start = Metrics.start();
+        boolean traced = new RecommendationEvent().isEnabled();
+        long scanStart = traced ? System.nanoTime() : 0L;
         Node user = g.getNodeByID(userID);
+        RatingRow row = ratings == null || user == null ? null
+                : new RatingRow(ratings, ratings.indexOf(userID));
         TreeMap<Double, List<Node>> scores = new TreeMap<>();
         for (Node node : users) {
             if (!node.equals(user)) {
-                double score = getJaccardCoeff(user, node);
+                double score = row == null ? getJaccardCoeff(user, node)
+                        : row.jaccard(ratings.indexOf(node.getID()));
                 if (scores.containsKey(score)) {
                     scores.get(score).add(node);
                 } else {
@@ -199,6 +318,13 @@ public class Recommender {
             }
         }
         
+        Metrics.stop("recommender.similarityScan", start);
+        Metrics.count("recommender.similarityScan.users", users.size());
+        if (traced) {
+            long[] scan = lastScan.get();
+            scan[0] = userID;
+            scan[1] = System.nanoTime() - scanStart;
+        }
         return scores;
     }
     
@@ -210,18 +336,91 @@ public class Recommender {
      * @param limit  the maximum number of top scores to return
      * @return       the list of nodes corresponding to the top limit scores
      */
-    private Set<Node> getTopMatches(TreeMap<Double, List<Node>> map, int limit) {
+    private Map<Node, Double> getTopMatches(TreeMap<Double, List<Node>> map,
+                                            int limit) {
         if (limit > size) {
             throw new IllegalArgumentException();
         }
 
-        Set<Node> topMatches = new HashSet<>();
-        while (topMatches.size() < limit) {
+        Map<Node, Double> topMatches = new HashMap<>();
+        while (topMatches.size() < limit && !map.isEmpty()) {
             Map.Entry<Double, List<Node>> entry = map.pollLastEntry();
-            topMatches.addAll(entry.getValue());
+            for (Node node : entry.getValue()) {
+                topMatches.put(node, entry.getKey());
+            }
         }
         return topMatches;
     }
+
+    /**
+     * Predicts a user's ratings of some items with mean-centered,
+     * similarity-weighted averaging:
+     *
+     * <p>
+     *     p(u, i) = mean(u) + sum(s(v) * (r(v, i) - mean(v))) / sum(|s(v)|)
+     *
+     * <p>
+     *     over the top users v who rated i, skipping undefined scores. Items
+     *     none of them rated get the
+     *     user's mean rating. Predictions are clamped to the range of ratings
+     *     in the graph.
+     *
+     * @param user     the user
+     * @param itemIDs  the items
+     * @param top      the most similar users and their similarity scores
+     * @return         the predicted rating of every item
+     */
+    double[] predict(Node user, int[] itemIDs, Map<Node, Double> top) {
+        Map<Integer, Integer> slots = new HashMap<>();
+        for (int i = 0; i < itemIDs.length; i++) {
+            slots.put(itemIDs[i], i);
+        }
+
+        double[] num = new double[itemIDs.length];
+        double[] den = new double[itemIDs.length];
+        for (Map.Entry<Node, Double> entry : top.entrySet()) {
+            Node other = entry.getKey();
+            double sim = entry.getValue();
+            if (sim == 0.0 || Double.isNaN(sim) || other.equals(user)) {
+                continue;
+            }
+            double mean = meanRating(other);
+            for (Edge e : other.getEdgeView()) {
+                Integer slot = slots.get(e.getTgt().getID());
+                if (slot != null) {
+                    num[slot] += sim * (e.getWeight() - mean);
+                    den[slot] += Math.abs(sim);
+                }
+            }
+        }
+
+        double mean = meanRating(user);
+        double[] predictions = new double[itemIDs.length];
+        for (int i = 0; i < itemIDs.length; i++) {
+            double p = den[i] == 0.0 ? mean : mean + num[i] / den[i];
+            predictions[i] = Math.max(minRating, Math.min(maxRating, p));
+        }
+        return predictions;
+    }
+
+    /**
+     * Returns the mean of a user's ratings, or the midpoint of the rating
+     * range if the user has none.
+     *
+     * @param user  the user
+     * @return      the mean rating
+     */
+    private double meanRating(Node user) {
+        Set<Edge> edges = user.getEdgeView();
+        if (edges.isEmpty()) {
+            return (minRating + maxRating) / 2;
+        }
+        double sum = 0.0;
+        for (Edge e : edges) {
+            sum += e.getWeight();
+        }
+        return sum / edges.size();
+    }
     
     /**
      * Method for calculating the Pearson Correlation Coefficient score
@@ -304,59 +503,140 @@ public class Recommender {
     }
 
     /**
-     * Converts the given list of items to the movieLens names.
-     * 
-     * @param user   the user of the items
-     * @param items  the items to convert
-     * @return       the String to output
-     * @throws DataFormatException
+     * This class provides one user's ratings, decoded once from the
+     * compressed rows, and the similarity of that user to any other. Both
+     * rows are sorted by item, so the items in common are found by merging
+     * them instead of intersecting sets. The results are the same as
+     * getPearsonCoeff and getJaccardCoeff.
      */
-    public String getMovieLensNames(int user, List<Integer> items)
-            throws DataFormatException {
-        String result = "";
-        String users = "data/ml-100k/u.user";
-        String movies = "data/ml-100k/u.item";
-        Pattern p = Pattern.compile("(^" + Integer.toString(user) + ".*)");
-        Matcher m = p.matcher("");
-        Set<Integer> setOfMovies = new HashSet<>(items);
-        try {
-            Scanner s = new Scanner(new File(users));
-            while (s.hasNextLine()) {
-                String line = s.nextLine();
-                m.reset(line); //reset the input
-                if (m.find()) {
-                    System.out.println("For user " + m.group(1)
-                            + " our best recommendations are:");
-                    result += "For user " + m.group(1) + " our "
-                            + "recommendations are:\n";
-                    break;
-                }
+    private static final class RatingRow {
+        private final CompressedGraph ratings;
+        private final NeighborCursor cursor;
+        private final int[] items;
+        private final double[] values;
+
+        RatingRow(CompressedGraph ratings, int user) {
+            this.ratings = ratings;
+            this.cursor = ratings.cursor();
+            this.items = new int[ratings.getOutDegree(user)];
+            this.values = new double[items.length];
+            cursor.reset(user);
+            for (int i = 0; cursor.next(); i++) {
+                items[i] = cursor.target();
+                values[i] = cursor.weight();
             }
+        }
 
-            Scanner s2 = new Scanner(new File(movies));
-            while (s2.hasNextLine()) {
-                String line = s2.nextLine();
-                String[] tokens = line.split("\\|");
-                if (tokens.length < 2) {
-                    throw new DataFormatException();
+        /**
+         * Calculates the Pearson Correlation Coefficient with another user.
+         *
+         * @param other  the index of the other user
+         * @return       the score for the two users
+         */
+        double pearson(int other) {
+            int size = 0;
+            double firstSum = 0.0;
+            double sndSum = 0.0;
+            double firstSqSum = 0.0;
+            double sndSqSum = 0.0;
+            double prodSum = 0.0;
+
+            cursor.reset(other);
+            int i = 0;
+            while (i < items.length && cursor.next()) {
+                int item = cursor.target();
+                while (i < items.length && items[i] < item) {
+                    i++;
+                }
+                if (i < items.length && items[i] == item) {
+                    double first = values[i++];
+                    double snd = cursor.weight();
+                    size++;
+                    firstSum = firstSum + first;
+                    sndSum = sndSum + snd;
+                    firstSqSum = firstSqSum + first * first;
+                    sndSqSum = sndSqSum + snd * snd;
+                    prodSum = prodSum + first * snd;
                 }
-                int id = Integer.parseInt(tokens[0]);
-                if (setOfMovies.contains(id + 943)) {
-                    System.out.println("Movie: " + tokens[0] + "|"
-                            + tokens[1] + "|" + tokens[2]);
-                    result += "" + tokens[0] + "|" + tokens[1] +
-                            "|" + tokens[2] + "\n";
-                    setOfMovies.remove(id);
+            }
+
+            if (size == 0) return 0.0;
+
+            double numerator = prodSum - (firstSum * sndSum / size);
+            double denom = Math.sqrt((firstSqSum - firstSum * firstSum / size)
+                    * (sndSqSum - sndSum * sndSum / size));
+
+            if (denom == 0.0) return 0.0;
+
+            return numerator / denom;
+        }
+
+        /**
+         * Calculates the Jaccard coefficient with another user, as
+         * getJaccardCoeff does.
+         *
+         * @param other  the index of the other user
+         * @return       the Jaccard similarity coefficient
+         */
+        double jaccard(int other) {
+            int common = 0;
+            cursor.reset(other);
+            int i = 0;
+            while (i < items.length && cursor.next()) {
+                int item = cursor.target();
+                while (i < items.length && items[i] < item) {
+                    i++;
                 }
-                if (setOfMovies.isEmpty()) {
-                    break;
+                if (i < items.length && items[i] == item) {
+                    common++;
+                    i++;
                 }
             }
-            s.close();
-            s2.close();
-        } catch (FileNotFoundException e) {
+            int onlyOther = ratings.getOutDegree(other) - common;
+            return (double) (common - onlyOther)
+                    / (double) (common + onlyOther);
+        }
+    }
+
+    /**
+     * Converts the given list of items to the movieLens names, using the
+     * shared MovieLensCatalog.
+     * 
+     * @param user   the user of the items
+     * @param items  the items to convert, best first
+     * @return       the String to output
+     * @throws DataFormatException if the metadata files are malformed
+     */
+    public String getMovieLensNames(int user, List<Integer> items)
+            throws DataFormatException {
+        long start = Metrics.start();
+        MovieLensCatalog catalog;
+        try {
+            catalog = MovieLensCatalog.getDefault();
+        } catch (IOException e) {
             e.printStackTrace();
+            return "";
+        }
+
+        StringBuilder result = new StringBuilder();
+        String record = catalog.getUser(user);
+        if (record != null) {
+            System.out.println("For user " + record
+                    + " our best recommendations are:");
+            result.append("For user ").append(record)
+                    .append(" our recommendations are:\n");
+        }
+
+        // Item nodes are offset by the number of users
+        List<Integer> movieIDs = new ArrayList<>(items.size());
+        for (int item : items) {
+            movieIDs.add(item - 943);
+        }
+        for (String movie : catalog.getMovies(movieIDs)) {
+            System.out.println("Movie: " + movie);
+            result.append(movie).append('\n');
         }
-        return result;
+        Metrics.stop("recommender.nameLookup", start);
+        return result.toString();
     }
 }
@@ -0,0 +1,149 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class provides a Graph whose Node IDs have been renumbered for
+ * locality, together with the mapping back to the original IDs.
+ *
+ * <p>
+ *     The new IDs are 0 to n - 1 in the order chosen by a NodeOrdering, so
+ *     that nodes which are traversed together have nearby IDs. Since every
+ *     IndexedGraph, CompressedGraph and OffHeapGraph indexes nodes in ID
+ *     order, they inherit the ordering, and the Nodes themselves are
+ *     allocated in it. Results computed on the relabelled Graph are
+ *     translated back with getOriginalID or toOriginal.
+ *
+ */
+public class Relabeling {
+    private final Graph graph;
+    // New ID to original ID
+    private final int[] originalIDs;
+    // The original IDs in ascending order, and the new ID of each
+    private final int[] sortedIDs;
+    private final int[] newIDs;
+
+    /**
+     * Relabels a graph.
+     *
+     * @param ig     the indexed graph
+     * @param order  order[i] is the index of the node given the new ID i
+     */
+    Relabeling(IndexedGraph ig, int[] order) {
+        int n = ig.n;
+        int[] rank = new int[n];
+        originalIDs = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[order[i]] = i;
+            originalIDs[i] = ig.ids[order[i]];
+        }
+        // Indices are in ascending ID order already
+        sortedIDs = ig.ids.clone();
+        newIDs = rank;
+
+        graph = new Graph();
+        for (int i = 0; i < n; i++) {
+            graph.addNode(i, new Node(i));
+        }
+        for (int i = 0; i < n; i++) {
+            int u = order[i];
+            for (int e = ig.offsets[u]; e < ig.offsets[u + 1]; e++) {
+                graph.addEdge(i, rank[ig.targets[e]], ig.weights[e]);
+            }
+        }
+    }
+
+    /**
+     * Returns the relabelled Graph.
+     *
+     * @return the Graph, with Node IDs 0 to n - 1
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of Nodes.
+     *
+     * @return the number of Nodes
+     */
+    public int getSize() {
+        return originalIDs.length;
+    }
+
+    /**
+     * Returns the original ID of a relabelled Node.
+     *
+     * @param newID  the new ID
+     * @return       the ID in the input Graph
+     */
+    public int getOriginalID(int newID) {
+        if (newID < 0 || newID >= originalIDs.length) {
+            throw new IllegalArgumentException();
+        }
+        return originalIDs[newID];
+    }
+
+    /**
+     * Returns the new ID of a Node of the input Graph.
+     *
+     * @param originalID  the ID in the input Graph
+     * @return            the new ID
+     */
+    public int getNewID(int originalID) {
+        int i = Arrays.binarySearch(sortedIDs, originalID);
+        if (i < 0) {
+            throw new IllegalArgumentException();
+        }
+        return newIDs[i];
+    }
+
+    /**
+     * Returns the permutation as an array.
+     *
+     * @return the original ID of every new ID, by new ID
+     */
+    public int[] getOriginalIDs() {
+        return originalIDs.clone();
+    }
+
+    /**
+     * Translates a list of new IDs, such as a path, to original IDs.
+     *
+     * @param newIDs  the new IDs
+     * @return        the original IDs, in the same order
+     */
+    public List<Integer> toOriginal(List<Integer> newIDs) {
+        if (newIDs == null) {
+            throw new IllegalArgumentException();
+        }
+        List<Integer> result = new ArrayList<>(newIDs.size());
+        for (int id : newIDs) {
+            result.add(getOriginalID(id));
+        }
+        return result;
+    }
+
+    /**
+     * Translates a map keyed by new ID, such as a centrality map, to one
+     * keyed by original ID.
+     *
+     * @param values  the values by new ID
+     * @param <V>     the value type
+     * @return        the values by original ID
+     */
+    public <V> Map<Integer, V> toOriginal(Map<Integer, V> values) {
+        if (values == null) {
+            throw new IllegalArgumentException();
+        }
+        Map<Integer, V> result = new HashMap<>();
+        for (Map.Entry<Integer, V> entry : values.entrySet()) {
+            result.put(getOriginalID(entry.getKey()), entry.getValue());
+        }
+        return result;
+    }
+}
@@ -1,23 +1,26 @@
 package engine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableSet;
 import java.util.Queue;
 import java.util.Set;
-import java.util.Stack;
-import java.util.TreeMap;
 
 /**
  * This class provides implementations of the various search
  * algorithms from the Graph Toolkit class, including
- * BFS, DFS, Topological Sort, and Floyd-Warshall.
+ * BFS, DFS and Topological Sort (Kahn's algorithm).
  *
  */
 class Search {
+    // Receives DFS events when the caller does not need them
+    private static final DfsVisitor NO_VISITOR = new DfsVisitor() {
+    };
+
 	private Search() {
 		// This class should not be instantiated
 		throw new IllegalStateException();
@@ -93,367 +96,317 @@ class Search {
 		return new LinkedList<>();
 	}
 
-	/**
-	 * Function performs DFS on a given graph and returns 
-	 * a map of nodes in the graph to a list of start and
-	 * finish times. Function does not restart DFS if
-	 * all nodes have not been visited yet.
-	 * 
-	 * @param g the Graph
-	 * @param src the start Node
-	 * @return A mapping of node to start and finish times
-	 */
-	static Map<Node, List<Integer>> dfsForest(Graph g, Node src) {
-		if (g == null || src == null) {
-			throw new IllegalArgumentException();
-		}
-		Set<Node> nodes = g.getAllNodes();
-		//A mapping of a Node to its corresponding finish time
-		Map<Node, List<Integer>> timeStamps =
-				new HashMap<Node, List<Integer>>();
-
-		//Set keeping track gray nodes
-		Set<Node> visited = new HashSet<Node>();
-
-		//stack to perform depth first search
-		Stack<Node> stack = new Stack<Node>();
-		stack.push(src);
-
-		//counter to record finish times
-		int counter = 1;
-
-		while (!stack.empty()) {
-			Node a = stack.peek();
-			//If node has not been visited yet
-			if (!visited.contains(a)) {
-				visited.add(a);
-				stamp(timeStamps, a, counter);
-				Set<Node> neighbors = a.getNeighbors();
-				for (Node n : neighbors) {
-					if (!visited.contains(n))
-						stack.add(n);
-				}
-			} else {
-                // If node has already been visited then stamp finish time and
-                // pop from stack. If stack is empty then search the graph for
-			    // unvisited nodes.
-				stamp(timeStamps, a, counter);
-				stack.pop();
-				if (stack.isEmpty() &&
-						getUnvisited(nodes, visited) != null) {
-					stack.push(getUnvisited(nodes, visited));
-				}
-			}
+    /**
+     * A BFS over any GraphStorage, such as a CompressedGraph, to find the
+     * shortest path from src to tgt in number of edges. The frontier is an
+     * int queue and every row is read once, in order, through one cursor.
+     *
+     * @param g    the graph
+     * @param src  the index of the node to start BFS from
+     * @param tgt  the index of the node to end BFS at
+     * @return     the indices on the shortest path from src to tgt, or an
+     *             empty array if there is no path
+     */
+    static int[] bfs(GraphStorage g, int src, int tgt) {
+        int n = g.numNodes();
+        int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+        parent[src] = src;
+        int[] queue = new int[n];
+        queue[0] = src;
+        int head = 0;
+        int tail = 1;
+        NeighborCursor cursor = g.cursor();
+
+        while (head < tail && parent[tgt] < 0) {
+            int u = queue[head++];
+            cursor.reset(u);
+            while (cursor.next()) {
+                int w = cursor.target();
+                if (parent[w] < 0) {
+                    parent[w] = u;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        if (parent[tgt] < 0) {
+            return new int[0];
+        }
 
-			counter++;
-		}
+        int length = 1;
+        for (int v = tgt; v != src; v = parent[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = tgt, i = length - 1; i >= 0; v = parent[v], i--) {
+            path[i] = v;
+        }
+        return path;
+    }
 
-		return timeStamps;
-	}
+    /**
+     * Performs DFS from src and, whenever a tree is exhausted, restarts
+     * from an unvisited node until every node has been visited. New trees
+     * start at nodes of zero in-degree where possible, in index order.
+     * @see #dfsTree(IndexedGraph, int, DfsVisitor)
+     *
+     * @param ig       the indexed graph
+     * @param src      the index of the first root
+     * @param visitor  receives the search events, or null
+     * @return         {discovery, finish}: the timestamps of every node
+     */
+    static int[][] dfsForest(IndexedGraph ig, int src, DfsVisitor visitor) {
+        return dfs(ig, src, true, visitor);
+    }
 
-	/**
-	 * Function performs DFS on given graph and returns
-	 * a Map of nodes in the graph to a list of integers. 
-	 * Function restarts DFS if any node in graph has
-	 * not been visited yet. 
-	 * 
-	 * @param g the Graph
-	 * @param src the node to start DFS
-	 * @return mapping of nodes to start and finish
-	 * times. 
-	 */
-	static Map<Node, List<Integer>> dfsTree(Graph g, Node src) {
-		if (g == null || src == null) {
-			throw new IllegalArgumentException();
-		}
-		//A mapping of a Node to its corresponding finish time
-		Map<Node, List<Integer>> timeStamps =
-				new HashMap<Node, List<Integer>>();
-
-		//Set keeping track gray nodes
-		Set<Node> visited = new HashSet<Node>();
-
-		//stack to perform depth first search
-		Stack<Node> stack = new Stack<Node>();
-		stack.push(src);
-
-		//counter to record finish times
-		int counter = 1;
-
-		while (!stack.empty()) {
-			Node a = stack.peek();
-			//If node has not been visited yet
-			if (!visited.contains(a)) {
-				visited.add(a);
-                stamp(timeStamps, a, counter);
-				Set<Node> neighbors = a.getNeighbors();
-				for (Node n : neighbors) {
-					if (!visited.contains(n))
-						stack.push(n);
-				}
-			} else {
-			    // If node has already been visited then stamp finish time and
-                // pop from stack.
-				stamp(timeStamps, a, counter);
-				stack.pop();
-			}
+    /**
+     * Performs DFS from src, visiting only the nodes it can reach.
+     *
+     * <p>
+     *     The search keeps an explicit int stack and an edge cursor per
+     *     node on it, so each edge is looked at once and nothing is
+     *     allocated per node. Discovery and finish times share one counter
+     *     starting at 1; a node that was never reached has 0 for both.
+     *
+     * @param ig       the indexed graph
+     * @param src      the index of the root
+     * @param visitor  receives the search events, or null
+     * @return         {discovery, finish}: the timestamps of every node
+     */
+    static int[][] dfsTree(IndexedGraph ig, int src, DfsVisitor visitor) {
+        return dfs(ig, src, false, visitor);
+    }
 
-			counter++;
-		}
+    private static int[][] dfs(IndexedGraph ig, int src, boolean forest,
+                               DfsVisitor visitor) {
+        if (visitor == null) {
+            visitor = NO_VISITOR;
+        }
 
-		return timeStamps;
-	}
+        int n = ig.n;
+        int[] discovery = new int[n];
+        int[] finish = new int[n];
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        int time = visit(ig, src, 0, discovery, finish, stack, cursor,
+                visitor);
+        if (!forest) {
+            return new int[][]{discovery, finish};
+        }
 
-	/**
-	 * Function performs a topological sort on the vertices
-	 * of a given graph by performing DFS and arrange
-	 * vertices by descending finish times. 
-	 * 
-	 * @param g the Graph
-	 * @return a topological sort of the vertices in the
-	 * graph. 
-	 */
-	static List<Node> topSort(Graph g) {
-		if (!detectCycle(g)) {
-			TreeMap<Integer, Node> map = new TreeMap<>();
-			Set<Node> nodes = g.getAllNodes();
-			Set<Node> visited = new HashSet<>();
-			Node src = getUnvisited(nodes, visited);
-			Map<Node, List<Integer>> timeStamps = dfsForest(g, src);
-			for (Node n : nodes) {
-				int finishTime = timeStamps.get(n).get(1);
-				map.put(finishTime, n);
-			}
-			NavigableSet<Integer> keys = map.descendingKeySet();
-			Stack<Node> sort = new Stack<>();
-			for (int n : keys) {
-				sort.push(map.get(n));
-			}
-			return sort;
-		} else {
-			throw new IllegalArgumentException();
-		}
-	}
+        int[] inDegree = new int[n];
+        for (int e = 0; e < ig.offsets[n]; e++) {
+            inDegree[ig.targets[e]]++;
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int v = 0; v < n; v++) {
+                if (discovery[v] == 0 && (pass == 1 || inDegree[v] == 0)) {
+                    time = visit(ig, v, time, discovery, finish, stack,
+                            cursor, visitor);
+                }
+            }
+        }
+        return new int[][]{discovery, finish};
+    }
 
     /**
-     * Implement the Bellman-Ford Algorithm for Single-Source Shortest Paths
-     * Unlike Dijkstra's, this algorithm works even if the graph has negative
-     * weight edges. It, however, does not work (and throws an
-     * IllegalArgumentException) if given a graph with a negative weight cycle.
+     * Runs one DFS tree from root.
      *
-     * @param g The input graph
-     * @param src The start node
-     * @return map of shortest path distances from src to every other node in G
+     * @param ig         the indexed graph
+     * @param root       the index of the root
+     * @param time       the last timestamp handed out
+     * @param discovery  the discovery times, 0 for unvisited nodes
+     * @param finish     the finish times, 0 for unfinished nodes
+     * @param stack      scratch space for the DFS stack
+     * @param cursor     the next edge to explore for every node on the stack
+     * @param visitor    receives the search events
+     * @return           the last timestamp handed out
      */
-    static Map<Node, Double> bellmanFord(Graph g, Node src) {
-        Map<Node, Double> dists = new HashMap<>();
-        Set<Edge> edges = new HashSet<>();
-        for (Node n : g.getAllNodes()) {
-            edges.addAll(n.getEdges());
-            if (!n.equals(src)) {
-                dists.put(n, Double.MAX_VALUE);
-            } else {
-                dists.put(n, 0.0);
+    private static int visit(IndexedGraph ig, int root, int time,
+                             int[] discovery, int[] finish, int[] stack,
+                             int[] cursor, DfsVisitor visitor) {
+        int[] ids = ig.ids;
+        int[] offsets = ig.offsets;
+        int[] targets = ig.targets;
+
+        int top = 0;
+        stack[top++] = root;
+        discovery[root] = ++time;
+        cursor[root] = offsets[root];
+        visitor.preVisit(ids[root], time);
+
+        while (top > 0) {
+            int u = stack[top - 1];
+            if (cursor[u] == offsets[u + 1]) {
+                finish[u] = ++time;
+                visitor.postVisit(ids[u], time);
+                top--;
+                continue;
             }
-        }
 
-        for (Node n : g.getAllNodes()) {
-            for (Edge e : edges) {
-                Node u = e.getSrc();
-                Node v = e.getTgt();
-                double weight = e.getWeight();
-                // Relax all edges
-                if (dists.get(u) + weight < dists.get(v)) {
-                    dists.put(v, dists.get(u) + weight);
-                }
+            int w = targets[cursor[u]++];
+            if (discovery[w] == 0) {
+                visitor.treeEdge(ids[u], ids[w]);
+                discovery[w] = ++time;
+                cursor[w] = offsets[w];
+                visitor.preVisit(ids[w], time);
+                stack[top++] = w;
+            } else if (finish[w] == 0) {
+                visitor.backEdge(ids[u], ids[w]);
+            } else if (discovery[u] < discovery[w]) {
+                visitor.forwardEdge(ids[u], ids[w]);
+            } else {
+                visitor.crossEdge(ids[u], ids[w]);
             }
         }
+        return time;
+    }
 
-        // Negative cycle tester
-        for (Edge e : edges) {
-            Node u = e.getSrc();
-            Node v = e.getTgt();
-            double weight = e.getWeight();
-            // Relax all edges
-            if (dists.get(u) + weight < dists.get(v)) {
-                throw new IllegalArgumentException(
-                        "Graph contains negative cycle");
+    /**
+     * Sorts the nodes of a graph topologically with Kahn's algorithm, in
+     * O(V + E). Layers come one after the other, and within a layer nodes
+     * are in the order their last in-edge was removed, which the sorted
+     * CSR rows make deterministic.
+     * @see #topSortLayers(IndexedGraph)
+     *
+     * @param ig  the indexed graph
+     * @return    the node indices in topological order
+     * @throws CycleException if the graph has a cycle
+     */
+    static int[] topSort(IndexedGraph ig) {
+        int[] order = new int[ig.n];
+        kahn(ig, order, new int[ig.n + 1]);
+        return order;
+    }
+
+    /**
+     * Splits the nodes of a graph into layers that can be scheduled one
+     * after the other: every node's predecessors are all in earlier
+     * layers, so the nodes within a layer can run in parallel. Layer k
+     * holds the nodes whose longest path from a source has k edges.
+     *
+     * <p>
+     *     Kahn's algorithm queues every layer in edge order. Each layer is
+     *     put in ascending order with one counting pass over the nodes
+     *     rather than a sort, so this stays O(V + E).
+     *
+     * @param ig  the indexed graph
+     * @return    the node indices of every layer, each in ascending order
+     * @throws CycleException if the graph has a cycle
+     */
+    static int[][] topSortLayers(IndexedGraph ig) {
+        int n = ig.n;
+        int[] order = new int[n];
+        int[] layerEnds = new int[n + 1];
+        int numLayers = kahn(ig, order, layerEnds);
+
+        int[] layerOf = new int[n];
+        for (int k = 0; k < numLayers; k++) {
+            for (int i = layerEnds[k]; i < layerEnds[k + 1]; i++) {
+                layerOf[order[i]] = k;
             }
         }
-
-        return dists;
+        int[][] layers = new int[numLayers][];
+        int[] fill = new int[numLayers];
+        for (int k = 0; k < numLayers; k++) {
+            layers[k] = new int[layerEnds[k + 1] - layerEnds[k]];
+        }
+        for (int v = 0; v < n; v++) {
+            int k = layerOf[v];
+            layers[k][fill[k]++] = v;
+        }
+        return layers;
     }
 
     /**
-	 * Finds all-pairs shortest paths by implementing the
-	 * Floyd-Warshall algorithm
-	 *
-	 * @param g the input graph
-	 * @return a map representing the all-pairs shortest path matrix
-	 */
-	static Map<Node, Map<Node, Double>> floydWarshall(Graph g) {
-		Map<Node, Map<Node, Double>> dist = new HashMap<>();
-
-		// Initialize dists
-		for (Node n : g.getAllNodes()) {
-			Map<Node, Double> innerMap = new HashMap<>();
-			innerMap.put(n, 0.0);
-			for (Edge e : n.getEdges()) {
-				Node tgt = e.getTgt();
-				innerMap.put(tgt, e.getWeight());
-			}
-			dist.put(n, innerMap);
-		}
-
-		for (Node i : g.getAllNodes()) {
-			for (Node j : g.getAllNodes()) {
-				for (Node k : g.getAllNodes()) {
-					// Account for lazy initialization
-					double distJK = (dist.get(j).get(k) == null) ?
-							Double.MAX_VALUE : dist.get(j).get(k);
-					double distJI = (dist.get(j).get(i) == null) ?
-							Double.MAX_VALUE : dist.get(j).get(i);
-					double distIK = (dist.get(i).get(k) == null) ?
-							Double.MAX_VALUE : dist.get(i).get(k);
-
-					// Recurrence
-					if (distJK > distJI + distIK) {
-						dist.get(j).put(k, distJI + distIK);
-					}
-				}
-			}
-		}
-
-		return dist;
-	}
-
-	/**
-	 * Check if n has in degree
-	 *
-	 * @param n     the node to check
-	 * @param graph the graph containing the node
-	 * @return true if in degree == 0, false otherwise
-	 */
-	private static boolean checkInDegree(Node n, Set<Node> graph) {
-		for (Node k : graph) {
-			if (k.getNeighbors().contains(n)) {
-				return false;
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * Given a set of nodes in a graph and a set of visited nodes, function returns
-    	an unvisited node of zero In degree. If there are no nodes of zero
-    	in degree in remaining connected component, returns arbitrary unvisited node
-	 * 
-	 * @param graph the set of nodes of a Graph
-	 * @param visited a set of discovered nodes
-	 * @return a node with zero in degree. If such a node 
-	 * does not exist then return the first unvisited node
-	 * encountered. 
-	 */
-	private static Node getUnvisited(Set<Node> graph, Set<Node> visited) {
-		for (Node n : graph) {
-			if (!visited.contains(n) && checkInDegree(n, graph)) {
-				return n;
-			}
-		}
-		for (Node n : graph) {
-			if (!visited.contains(n)) {
-				return n;
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * Given a map, a node, and an int, function adds int to the set of
-    	integers mapped by the given node. Helper function for dfs and
-    	cycle detection.
-	 * 
-	 * @param map current time stamp maps
-	 * @param n Node to be stamped
-	 * @param i integer to stamp node with
-	 * @return a map time stamps with given 
-	 * node stamped with given integer. 
-	 */
-	private static Map<Node, List<Integer>> stamp(Map<Node,
-			List<Integer>> map, Node n, int i) {
-		if (map.containsKey(n)) {
-			List<Integer> set = map.get(n);
-			set.add(i);
-			map.put(n, set);
-			return map;
-		} else {
-			List<Integer> set = new LinkedList<Integer>();
-			set.add(i); 
-			map.put(n, set);
-			return map;
-		}
-	}
-
-	/**
-	 * function returns a boolean checking if given graph contains a cycle.
-    	Returns true if there exists a cycle.
-	 * 
-	 * @param g the Graph
-	 * @return true if there is a cycle and false otherwise 
-	 */
-	private static boolean detectCycle(Graph g) {
-		if (g == null) {
-			throw new IllegalArgumentException();
-		}
-		Set<Node> nodes = g.getAllNodes();
-		Node src = g.getNodeByID(1);
-
-		//Set keeping track gray nodes
-		Set<Node> visited = new HashSet<Node>();
+     * Runs Kahn's algorithm over precomputed in-degrees in O(V + E).
+     *
+     * <p>
+     *     The queue is the order array itself. Nodes enter it when their
+     *     in-degree drops to zero, and all nodes of one layer are queued
+     *     while the previous layer is processed, so the FIFO order is the
+     *     layers one after the other. If the queue runs dry before every
+     *     node is sorted, each remaining node still has a remaining
+     *     predecessor, and walking predecessors must close a cycle.
+     *
+     * @param ig         the indexed graph
+     * @param order      receives the node indices in topological order
+     * @param layerEnds  receives the start of every layer in order,
+     *                   followed by the end of the last layer
+     * @return           the number of layers
+     * @throws CycleException if the graph has a cycle
+     */
+    private static int kahn(IndexedGraph ig, int[] order, int[] layerEnds) {
+        int n = ig.n;
+        int[] inDegree = new int[n];
+        for (int e = 0; e < ig.offsets[n]; e++) {
+            inDegree[ig.targets[e]]++;
+        }
 
-		//Set stores nodes that are fully finished
-		Set<Node> finished = new HashSet<Node>(); 
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0) {
+                order[tail++] = v;
+            }
+        }
 
-		//stack to perform depth first search
-		Stack<Node> stack = new Stack<Node>();
-		stack.add(src);
+        int numLayers = 0;
+        int head = 0;
+        while (head < tail) {
+            layerEnds[numLayers++] = head;
+            int end = tail;
+            for (; head < end; head++) {
+                int u = order[head];
+                for (int e = ig.offsets[u]; e < ig.offsets[u + 1]; e++) {
+                    int w = ig.targets[e];
+                    if (--inDegree[w] == 0) {
+                        order[tail++] = w;
+                    }
+                }
+            }
+        }
+        layerEnds[numLayers] = tail;
 
-		while (!stack.empty()) {
-			Node a = stack.peek();
-			int counter = 0; 
-			for(Node n : stack) {
-				if (n.equals(a))
-					counter++; 
-			}
+        if (tail < n) {
+            throw new CycleException("Graph contains a cycle",
+                    findCycle(ig, inDegree));
+        }
+        return numLayers;
+    }
 
-			if (counter >= 2) {
-				Set<Node> neighbors = a.getNeighbors();
-				for(Node j : neighbors) {
-					if(!finished.contains(j)) {
-						return true; 
-					}
-				}
-			}
+    /**
+     * Finds a cycle among the nodes Kahn's algorithm could not sort, by
+     * following remaining predecessors until a node repeats.
+     *
+     * @param ig        the indexed graph
+     * @param inDegree  the in-degrees left over by Kahn's algorithm
+     * @return          the Node IDs of the cycle, in edge order
+     */
+    private static List<Integer> findCycle(IndexedGraph ig, int[] inDegree) {
+        IndexedGraph reverse = ig.transpose();
+        int v = 0;
+        while (inDegree[v] == 0) {
+            v++;
+        }
 
-			//If node has not been visited yet
-			if (!visited.contains(a)) {
-				visited.add(a);
-				Set<Node> neighbors = a.getNeighbors();
-				for (Node n : neighbors) {
-                    stack.add(n);
-				}
-			} else {
-                // If node has already been visited then stamp finish time and
-                // pop from stack. If stack is empty then search the graph for
-                // unvisited nodes.
-                finished.add(stack.pop());
-				if (stack.isEmpty() &&
-						getUnvisited(nodes, visited) != null) {
-					stack.push(getUnvisited(nodes, visited));
-				}
-			}
-		}
+        // step[v] is 1 + the position at which the walk visited v
+        int[] step = new int[ig.n];
+        List<Integer> walk = new ArrayList<>();
+        while (step[v] == 0) {
+            step[v] = walk.size() + 1;
+            walk.add(v);
+            int e = reverse.offsets[v];
+            while (inDegree[reverse.targets[e]] == 0) {
+                e++;
+            }
+            v = reverse.targets[e];
+        }
 
-		return false;
-	}
+        // The walk went against the edges, so reverse it
+        List<Integer> cycle = new ArrayList<>();
+        for (int i = walk.size() - 1; i >= step[v] - 1; i--) {
+            cycle.add(ig.ids[walk.get(i)]);
+        }
+        return cycle;
+    }
 }
@@ -0,0 +1,378 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * This class provides the shortest path engines that run over the
+ * IndexedGraph form of a Graph, including Dijkstra's algorithm, which runs
+ * over any GraphStorage, the queue-based Bellman-Ford algorithm (SPFA), a
+ * blocked, parallel Floyd-Warshall algorithm and Johnson's algorithm.
+ *
+ */
+class ShortestPaths {
+    // Side length of a Floyd-Warshall tile; 64 * 64 doubles is 32 KB
+    private static final int TILE = 64;
+
+    private ShortestPaths() {
+        // This class should not be instantiated
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Implement Dijkstra's algorithm for Single-Source Shortest Paths, using
+     * an indexed binary heap. This runs in O((V + E) log V), but it is only
+     * correct if no edge has a negative weight.
+     *
+     * @param g    the graph, in any storage
+     * @param src  the index of the start node
+     * @return     the distance from src to every node, by index, with
+     *             Double.POSITIVE_INFINITY for unreachable nodes
+     */
+    static double[] dijkstra(GraphStorage g, int src) {
+        int n = g.numNodes();
+        double[] dist = new double[n];
+        dijkstra(g.cursor(), n, src, dist, new IndexedMinHeap(n));
+        return dist;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from src over the edges of a cursor,
+     * writing into a caller-supplied distance array and heap so that
+     * repeated searches do not allocate.
+     *
+     * @param cursor  a cursor over the graph's edges
+     * @param n       the number of nodes
+     * @param src     the index of the start node
+     * @param dist    the array to fill with distances
+     * @param heap    an empty heap with capacity n
+     */
+    static void dijkstra(NeighborCursor cursor, int n, int src,
+                         double[] dist, IndexedMinHeap heap) {
+        Arrays.fill(dist, 0, n, Double.POSITIVE_INFINITY);
+        dist[src] = 0.0;
+        heap.insertOrDecrease(src, 0.0);
+
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            double du = dist[u];
+            cursor.reset(u);
+            while (cursor.next()) {
+                int v = cursor.target();
+                double alt = du + cursor.weight();
+                // Relax the edge
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    heap.insertOrDecrease(v, alt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Implement the queue-based Bellman-Ford algorithm (also known as SPFA)
+     * for Single-Source Shortest Paths. This works with negative weight
+     * edges.
+     *
+     * <p>
+     *     Rather than relaxing every edge |V| times, only the edges out of
+     *     nodes whose distance changed are relaxed, using a FIFO of changed
+     *     nodes. The search stops as soon as a pass makes no relaxation,
+     *     which on most graphs is after a handful of passes.
+     *
+     * @param ig   the indexed graph
+     * @param src  the index of the start node
+     * @return     the distance from src to every node, by index, with
+     *             Double.POSITIVE_INFINITY for unreachable nodes
+     * @throws CycleException if a negative cycle is reachable from src
+     */
+    static double[] spfa(IndexedGraph ig, int src) {
+        double[] dist = new double[ig.n];
+        for (int v = 0; v < ig.n; v++) {
+            dist[v] = Double.POSITIVE_INFINITY;
+        }
+        dist[src] = 0.0;
+        spfa(ig, dist);
+        return dist;
+    }
+
+    /**
+     * Runs the queue-based Bellman-Ford algorithm starting from every node
+     * whose distance in dist is finite, improving dist in place. Starting
+     * with every distance at 0 is the same as adding a virtual source with
+     * a zero-weight edge to every node.
+     *
+     * <p>
+     *     Negative cycles are detected by counting, for every node, the
+     *     number of edges on its current tentative shortest path. A count of
+     *     |V| means the path repeats a node, so it goes around a negative
+     *     cycle; the cycle is then recovered from the parent pointers.
+     *
+     * @param ig    the indexed graph
+     * @param dist  the initial distances, updated in place
+     * @throws CycleException if a negative cycle is reachable
+     */
+    static void spfa(IndexedGraph ig, double[] dist) {
+        int n = ig.n;
+        int[] offsets = ig.offsets;
+        int[] targets = ig.targets;
+        double[] weights = ig.weights;
+        int[] parent = new int[n];
+        int[] length = new int[n];
+        boolean[] queued = new boolean[n];
+
+        // Circular FIFO; every node is in it at most once at a time
+        int[] queue = new int[n];
+        int head = 0;
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            parent[v] = -1;
+            if (dist[v] != Double.POSITIVE_INFINITY) {
+                queue[count++] = v;
+                queued[v] = true;
+            }
+        }
+
+        while (count > 0) {
+            int u = queue[head];
+            head = (head + 1 == n) ? 0 : head + 1;
+            count--;
+            queued[u] = false;
+
+            double du = dist[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                double alt = du + weights[e];
+                // Relax the edge
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    parent[v] = u;
+                    length[v] = length[u] + 1;
+                    if (length[v] >= n) {
+                        List<Integer> cycle = findParentCycle(ig, parent, v);
+                        if (cycle != null) {
+                            throw new CycleException(
+                                    "Graph contains negative cycle", cycle);
+                        }
+                        length[v] = 0;
+                    }
+                    if (!queued[v]) {
+                        int tail = head + count;
+                        queue[tail >= n ? tail - n : tail] = v;
+                        count++;
+                        queued[v] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks for a cycle in the parent pointers, first on the path up from
+     * start and then anywhere. Any such cycle has negative total weight.
+     *
+     * @param ig      the indexed graph
+     * @param parent  the parent of every node, or -1
+     * @param start   the node whose path triggered the check
+     * @return        the Node IDs of the cycle in edge order, or null if
+     *                there is none yet
+     */
+    private static List<Integer> findParentCycle(IndexedGraph ig,
+                                                 int[] parent, int start) {
+        int n = ig.n;
+        // 0 = unseen, otherwise the walk that first reached the node
+        int[] walk = new int[n];
+        int walkID = 0;
+        for (int i = -1; i < n; i++) {
+            int v = (i < 0) ? start : i;
+            if (walk[v] != 0) {
+                continue;
+            }
+            walkID++;
+            while (v >= 0 && walk[v] == 0) {
+                walk[v] = walkID;
+                v = parent[v];
+            }
+            if (v >= 0 && walk[v] == walkID) {
+                // v is on a cycle found during this walk
+                List<Integer> cycle = new ArrayList<>();
+                int u = v;
+                do {
+                    cycle.add(ig.ids[u]);
+                    u = parent[u];
+                } while (u != v);
+                Collections.reverse(cycle);
+                return cycle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds all-pairs shortest paths with a cache-blocked, parallel version
+     * of the Floyd-Warshall algorithm.
+     *
+     * <p>
+     *     The distance matrix is a flat, row-major double[] split into
+     *     TILE x TILE tiles. For every diagonal tile kb, three phases run:
+     *     the diagonal tile is closed over its own intermediates, then the
+     *     tiles in row kb and column kb (which only depend on the diagonal
+     *     tile) are updated in parallel, and finally every remaining tile
+     *     (which only depends on row kb and column kb) is updated in
+     *     parallel. Each tile stays in cache while it is worked on.
+     *
+     * <p>
+     *     A negative value on the diagonal means the Node is on a negative
+     *     cycle.
+     *
+     * @param ig  the indexed graph
+     * @return    the all-pairs distance matrix
+     * @throws IllegalArgumentException if n * n does not fit in an array
+     */
+    static DistanceMatrix floydWarshall(IndexedGraph ig) {
+        final int n = ig.n;
+        if ((long) n * n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "Graph too large for an all-pairs matrix");
+        }
+        final double[] d = new double[n * n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        for (int u = 0; u < n; u++) {
+            d[u * n + u] = 0.0;
+            for (int e = ig.offsets[u]; e < ig.offsets[u + 1]; e++) {
+                int idx = u * n + ig.targets[e];
+                // Keep the lightest of any parallel edges
+                d[idx] = Math.min(d[idx], ig.weights[e]);
+            }
+        }
+
+        final int nb = (n + TILE - 1) / TILE;
+        for (int kb = 0; kb < nb; kb++) {
+            final int k = kb;
+            relaxTile(d, n, k, k, k);
+            if (nb == 1) {
+                break;
+            }
+
+            // Row kb and column kb, 2 * (nb - 1) tiles
+            IntStream.range(0, 2 * nb).parallel().forEach(t -> {
+                int other = t >> 1;
+                if (other != k) {
+                    if ((t & 1) == 0) {
+                        relaxTile(d, n, k, other, k);
+                    } else {
+                        relaxTile(d, n, other, k, k);
+                    }
+                }
+            });
+
+            // All the other tiles
+            IntStream.range(0, nb * nb).parallel().forEach(t -> {
+                int ib = t / nb;
+                int jb = t % nb;
+                if (ib != k && jb != k) {
+                    relaxTile(d, n, ib, jb, k);
+                }
+            });
+        }
+
+        return new DistanceMatrix(ig.ids.clone(), d);
+    }
+
+    /**
+     * Finds all-pairs shortest paths with Johnson's algorithm, which suits
+     * sparse graphs far better than Floyd-Warshall: O(V E log V) time and
+     * O(V + E) working memory per thread.
+     *
+     * <p>
+     *     If any weight is negative, one queue-based Bellman-Ford pass from
+     *     a virtual source gives every node a potential h, and each edge
+     *     (u, v) is reweighted to w + h[u] - h[v], which is never negative.
+     *     Dijkstra's algorithm then runs from every source in parallel, and
+     *     each row is corrected back to the original weights and handed to
+     *     the consumer as soon as it is done.
+     *
+     * @param ig        the indexed graph
+     * @param consumer  the consumer of the distance rows
+     * @throws CycleException if the graph contains a negative cycle
+     */
+    static void johnson(final IndexedGraph ig,
+                        final DistanceRowConsumer consumer) {
+        final int n = ig.n;
+        final double[] h = new double[n];
+        final IndexedGraph reweighted;
+        if (ig.hasNegativeWeights()) {
+            spfa(ig, h);
+            double[] weights = new double[ig.weights.length];
+            for (int u = 0; u < n; u++) {
+                for (int e = ig.offsets[u]; e < ig.offsets[u + 1]; e++) {
+                    // Rounding can leave tiny negatives on tight edges
+                    weights[e] = Math.max(0.0,
+                            ig.weights[e] + h[u] - h[ig.targets[e]]);
+                }
+            }
+            // Shares the structure of ig; only the weights differ
+            reweighted = new IndexedGraph(ig.ids, ig.offsets, ig.targets,
+                    weights);
+        } else {
+            reweighted = ig;
+        }
+
+        // A few chunks per core, so uneven rows still balance
+        final int chunks = Math.min(n,
+                4 * ForkJoinPool.getCommonPoolParallelism());
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            NeighborCursor cursor = reweighted.cursor();
+            IndexedMinHeap heap = new IndexedMinHeap(n);
+            for (int src = c; src < n; src += chunks) {
+                double[] dist = new double[n];
+                dijkstra(cursor, n, src, dist, heap);
+                for (int v = 0; v < n; v++) {
+                    if (dist[v] != Double.POSITIVE_INFINITY) {
+                        dist[v] += h[v] - h[src];
+                    }
+                }
+                synchronized (consumer) {
+                    consumer.accept(ig.ids[src], ig.ids, dist);
+                }
+            }
+        });
+    }
+
+    /**
+     * Relaxes every pair in tile (ib, jb) through the intermediates in tile
+     * column kb, i.e. d[i][j] = min(d[i][j], d[i][k] + d[k][j]).
+     *
+     * @param d   the row-major distance matrix
+     * @param n   the side length of the matrix
+     * @param ib  the tile row
+     * @param jb  the tile column
+     * @param kb  the tile holding the intermediates
+     */
+    private static void relaxTile(double[] d, int n, int ib, int jb, int kb) {
+        int iEnd = Math.min(n, (ib + 1) * TILE);
+        int jStart = jb * TILE;
+        int jEnd = Math.min(n, jStart + TILE);
+        int kEnd = Math.min(n, (kb + 1) * TILE);
+        for (int k = kb * TILE; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = ib * TILE; i < iEnd; i++) {
+                int iRow = i * n;
+                double dik = d[iRow + k];
+                if (dik == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int j = jStart; j < jEnd; j++) {
+                    double alt = dik + d[kRow + j];
+                    if (alt < d[iRow + j]) {
+                        d[iRow + j] = alt;
+                    }
+                }
+            }
+        }
+    }
+}
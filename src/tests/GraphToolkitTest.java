@@ -1,21 +1,53 @@
 package tests;
 
+import engine.ComponentLabeling;
+import engine.CompressedGraph;
+import engine.CycleException;
 import engine.DataReader;
+import engine.DfsVisitor;
+import engine.DistanceMatrix;
+import engine.DistanceRowConsumer;
+import engine.DynamicPageRank;
+import engine.FlowSession;
 import engine.Graph;
+import engine.GraphGenerators;
 import engine.GraphToolkit;
+import engine.LatencyHistogram;
+import engine.MaxFlowAlgorithm;
+import engine.Metrics;
+import engine.MetricsDumpExporter;
+import engine.NeighborCursor;
+import engine.NodeOrdering;
+import engine.OffHeapGraph;
+import engine.PageRankListener;
+import engine.PageRankOptions;
+import engine.Relabeling;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class GraphToolkitTest {
 
@@ -93,6 +125,40 @@ public class GraphToolkitTest {
         GraphToolkit.dfsForest(g, 1);
     }
 
+    @Test
+    public void testDfsVisitor() throws Exception {
+        Graph g = DataReader.readGraphData("data/TestGraphs/dfs_cyclic.txt");
+        final List<String> events = new ArrayList<>();
+        Map<Integer, List<Integer>> timestamps = GraphToolkit.dfs(g, 1, false,
+                new DfsVisitor() {
+                    @Override
+                    public void treeEdge(int srcID, int tgtID) {
+                        events.add("tree " + srcID + " " + tgtID);
+                    }
+
+                    @Override
+                    public void backEdge(int srcID, int tgtID) {
+                        events.add("back " + srcID + " " + tgtID);
+                    }
+
+                    @Override
+                    public void forwardEdge(int srcID, int tgtID) {
+                        events.add("forward " + srcID + " " + tgtID);
+                    }
+
+                    @Override
+                    public void crossEdge(int srcID, int tgtID) {
+                        events.add("cross " + srcID + " " + tgtID);
+                    }
+                });
+        List<String> expected = Arrays.asList("tree 1 2", "tree 1 3",
+                "tree 3 4", "tree 3 5", "back 5 1", "cross 5 4", "tree 5 6",
+                "cross 6 4");
+        assertEquals(expected, events);
+        assertEquals(Arrays.asList(1, 12), timestamps.get(1));
+        assertEquals(Arrays.asList(8, 9), timestamps.get(6));
+    }
+
     @Test
     public void dfsTreeWithCC() throws Exception {
         Graph g = DataReader.readGraphData("data/TestGraphs/simpleDfs.txt");
@@ -168,6 +234,32 @@ public class GraphToolkitTest {
         assertEquals(sort, trueSort);
     }
 
+    @Test
+    public void testTopSortWitnessCycle() throws Exception {
+        Graph g = DataReader.readGraphData("data/TestGraphs/dfs_cyclic.txt");
+        try {
+            GraphToolkit.topSort(g);
+            fail("expected a CycleException");
+        } catch (CycleException e) {
+            // The only cycle is 1 -> 3 -> 5 -> 1
+            List<Integer> cycle = e.getCycle();
+            assertEquals(3, cycle.size());
+            int first = cycle.indexOf(1);
+            assertEquals(3, (int) cycle.get((first + 1) % 3));
+            assertEquals(5, (int) cycle.get((first + 2) % 3));
+        }
+    }
+
+    @Test
+    public void testTopSortLayers() throws Exception {
+        Graph g = DataReader.readGraphData("data/TestGraphs/dfs_acyclic.txt");
+        List<List<Integer>> layers = GraphToolkit.topSortLayers(g);
+        List<List<Integer>> expected = Arrays.asList(Arrays.asList(1),
+                Arrays.asList(2), Arrays.asList(3, 4), Arrays.asList(5),
+                Arrays.asList(6));
+        assertEquals(expected, layers);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testTopSortNull() throws Exception {
         Graph g = null;
@@ -256,6 +348,129 @@ public class GraphToolkitTest {
         assertEquals("Sets size equal", 0, expected.size());
     }
 
+    @Test
+    public void testSCCLabeling() throws Exception {
+        Graph g = DataReader.readGraphData("data/"
+                + "TestGraphs/kosaraju_medium.txt");
+        ComponentLabeling scc = GraphToolkit.getSCCLabeling(g);
+        assertEquals(4, scc.getComponentCount());
+        assertEquals(GraphToolkit.getSCC(g), scc.getComponents());
+        assertEquals(scc.getComponent(1), scc.getComponent(6));
+        assertEquals(scc.getComponent(3), scc.getComponent(7));
+
+        Graph dag = GraphToolkit.getCondensation(g, scc);
+        assertEquals(4, dag.getSize());
+        assertTrue(dag.containsEdge(scc.getComponent(1), scc.getComponent(3)));
+        assertTrue(dag.containsEdge(scc.getComponent(8), scc.getComponent(7)));
+        assertFalse(dag.containsEdge(scc.getComponent(3), scc.getComponent(1)));
+        // Labels are a topological order of the condensation
+        for (int c = 0; c < 4; c++) {
+            for (int d = 0; d <= c; d++) {
+                assertFalse(dag.containsEdge(c, d));
+            }
+        }
+    }
+
+    @Test
+    public void testSCCLongChain() throws Exception {
+        int length = 200000;
+        Graph g = new Graph();
+        for (int i = 1; i < length; i++) {
+            g.addEdge(i, i + 1, 1);
+        }
+        g.addEdge(length, length / 2, 1);
+        ComponentLabeling scc = GraphToolkit.getSCCLabeling(g);
+        assertEquals(length / 2, scc.getComponentCount());
+        assertEquals(scc.getComponent(length / 2), scc.getComponent(length));
+        assertTrue(scc.getComponent(1) < scc.getComponent(2));
+    }
+
+    @Test
+    public void testSCCParallel() throws Exception {
+        String[] files = {"data/TestGraphs/kosaraju_small.txt",
+                "data/TestGraphs/kosaraju_medium.txt",
+                "data/TestGraphs/kosaraju_self_loop.txt"};
+        for (String file : files) {
+            Graph g = DataReader.readGraphData(file);
+            assertEquals(GraphToolkit.getSCCLabeling(g).getComponents(),
+                    GraphToolkit.getSCCParallel(g).getComponents());
+        }
+
+        // Large enough for the forward-backward split to run
+        Random rand = new Random(7);
+        int n = 100000;
+        Graph g = new Graph();
+        for (int i = 0; i < 2 * n; i++) {
+            g.addEdge(rand.nextInt(n), rand.nextInt(n), 1);
+        }
+        ComponentLabeling parallel = GraphToolkit.getSCCParallel(g);
+        ComponentLabeling sequential = GraphToolkit.getSCCLabeling(g);
+        assertEquals(sequential.getComponentCount(),
+                parallel.getComponentCount());
+        assertEquals(sequential.getComponents(), parallel.getComponents());
+    }
+
+    @Test
+    public void testWCC() throws Exception {
+        // Users 1-3 rate items 10-11, users 4-5 rate item 12, and
+        // user 6 only has a self-loop
+        Graph g = buildGraph(new int[][]{
+                {1, 10, 5}, {2, 10, 3}, {3, 11, 4}, {2, 11, 1},
+                {12, 4, 2}, {5, 12, 2}, {6, 6, 1}});
+        ComponentLabeling wcc = GraphToolkit.getWCC(g);
+        assertEquals(3, wcc.getComponentCount());
+        assertEquals(0, wcc.getComponent(1));
+        assertEquals(wcc.getComponent(3), wcc.getComponent(10));
+        assertEquals(wcc.getComponent(5), wcc.getComponent(4));
+        assertEquals(2, wcc.getComponent(6));
+
+        Map<Integer, Integer> histogram = new HashMap<>();
+        histogram.put(1, 1);
+        histogram.put(3, 1);
+        histogram.put(5, 1);
+        assertEquals(histogram, wcc.getSizeHistogram());
+    }
+
+    @Test
+    public void testGenerators() throws Exception {
+        // Same seed, same edges
+        final List<String> first = new ArrayList<>();
+        final List<String> second = new ArrayList<>();
+        GraphGenerators.rmat(10, 5000, 42,
+                (src, tgt, weight) -> first.add(src + " " + tgt + " " + weight));
+        GraphGenerators.rmat(10, 5000, 42,
+                (src, tgt, weight) -> second.add(src + " " + tgt + " " + weight));
+        assertEquals(5000, first.size());
+        assertEquals(first, second);
+
+        final int[] count = new int[1];
+        GraphGenerators.grid(10, 20, 1, (src, tgt, weight) -> count[0]++);
+        assertEquals(2 * (10 * 19 + 9 * 20), count[0]);
+
+        Graph ba = new Graph();
+        GraphGenerators.barabasiAlbert(1000, 3, 7, ba);
+        assertEquals(1000, ba.getSize());
+        assertEquals(1, GraphToolkit.getWCC(ba).getComponentCount());
+
+        Graph ratings = new Graph();
+        GraphGenerators.bipartiteRatings(100, 50, 1000, 1.0, 3,
+                (src, tgt, weight) -> {
+                    assertTrue(src >= 1 && src <= 100);
+                    assertTrue(tgt > 100 && tgt <= 150);
+                    assertTrue(weight >= 1 && weight <= 5);
+                    ratings.addEdge(src, tgt, weight);
+                });
+        assertTrue(ratings.getSize() > 100);
+
+        count[0] = 0;
+        GraphGenerators.erdosRenyi(1000, 0.01, 5, (src, tgt, weight) -> {
+            assertTrue(src != tgt);
+            count[0]++;
+        });
+        // 9990 expected; 5 standard deviations is about 500
+        assertTrue(Math.abs(count[0] - 9990) < 500);
+    }
+
     @Test
     public void testBtwCentrality() throws Exception {
         Graph g = DataReader.readGraphData("data/TestGraphs/btw_centrality_small.txt");
@@ -271,6 +486,34 @@ public class GraphToolkitTest {
         }
     }
 
+    @Test
+    public void testClosenessCentrality() throws Exception {
+        Graph g = DataReader.readGraphData("data/TestGraphs/btw_centrality_small.txt");
+        Map<Integer, Double> closeness = GraphToolkit.getClosenessCentrality(g);
+        Map<Integer, Double> harmonic = GraphToolkit.getHarmonicCentrality(g);
+        assertEquals(7.0 / 10, closeness.get(2), 1e-9);
+        assertEquals(5.5, harmonic.get(2), 1e-9);
+        assertEquals(7.0 / 16, closeness.get(1), 1e-9);
+        assertEquals(3.5, harmonic.get(1), 1e-9);
+
+        // HyperBall should land close on a graph with larger balls
+        Random rand = new Random(11);
+        Graph big = new Graph();
+        for (int i = 0; i < 6000; i++) {
+            big.addEdge(rand.nextInt(2000), rand.nextInt(2000), 1);
+        }
+        Map<Integer, Double> exact = GraphToolkit.getHarmonicCentrality(big);
+        Map<Integer, Double> approx =
+                GraphToolkit.getApproximateHarmonicCentrality(big, 10);
+        double error = 0.0;
+        double norm = 0.0;
+        for (int id : exact.keySet()) {
+            error += Math.abs(exact.get(id) - approx.get(id));
+            norm += exact.get(id);
+        }
+        assertTrue(error / norm < 0.05);
+    }
+
     @Test
     public void testMaxFlowSimple2Node() throws Exception {
         Graph g = DataReader.readGraphData("data/TestGraphs/maxFlow_2Node.txt");
@@ -289,6 +532,264 @@ public class GraphToolkitTest {
         assertEquals(23, GraphToolkit.getMaxFlow(g, 0, 5));
     }
 
+    @Test
+    public void testMaxFlowPushRelabel() throws Exception {
+        Graph g = DataReader.readGraphData("data/TestGraphs/maxFlowTest.txt");
+        assertEquals(23.0, GraphToolkit.getMaxFlow(g, 0, 5,
+                MaxFlowAlgorithm.PUSH_RELABEL), 1e-9);
+        g = DataReader.readGraphData("data/TestGraphs/maxFlow_8NodeFun.txt");
+        assertEquals(GraphToolkit.getMaxFlow(g, 1, 8, MaxFlowAlgorithm.DINIC),
+                GraphToolkit.getMaxFlow(g, 1, 8, MaxFlowAlgorithm.PUSH_RELABEL),
+                1e-9);
+    }
+
+    @Test
+    public void testMaxFlowFractional() throws Exception {
+        Graph g = new Graph();
+        g.addEdge(1, 2, 0.5);
+        g.addEdge(1, 3, 1.25);
+        g.addEdge(2, 4, 2.0);
+        g.addEdge(3, 4, 1.0);
+        g.addEdge(3, 2, 0.75);
+        for (MaxFlowAlgorithm algorithm : MaxFlowAlgorithm.values()) {
+            assertEquals(1.75, GraphToolkit.getMaxFlow(g, 1, 4, algorithm),
+                    1e-9);
+        }
+    }
+
+    @Test
+    public void testFlowSession() throws Exception {
+        for (MaxFlowAlgorithm algorithm : MaxFlowAlgorithm.values()) {
+            // The edges of maxFlowTest.txt
+            int[][] edges = {{0, 1, 16}, {0, 2, 13}, {1, 2, 10}, {2, 1, 4},
+                    {1, 3, 12}, {2, 4, 14}, {3, 2, 9}, {4, 3, 7}, {4, 5, 4},
+                    {3, 5, 20}};
+            FlowSession session = GraphToolkit.openFlowSession(
+                    buildGraph(edges), 0, 5, algorithm);
+            assertEquals(23.0, session.getMaxFlow(), 1e-9);
+
+            double cut = 0.0;
+            Set<Integer> side = session.getSourceSide();
+            assertTrue(side.contains(0));
+            assertFalse(side.contains(5));
+            for (int[] edge : session.getCutEdges()) {
+                assertTrue(side.contains(edge[0]));
+                assertFalse(side.contains(edge[1]));
+                cut += session.getFlow(edge[0], edge[1]);
+            }
+            assertEquals(23.0, cut, 1e-9);
+
+            // Shrink a saturated edge, then grow edges and compare against
+            // solving from scratch
+            int[][] changes = {{3, 5, 10}, {3, 5, 20}, {4, 5, 100},
+                    {2, 4, 100}, {0, 1, 1}};
+            for (int[] change : changes) {
+                session.setCapacity(change[0], change[1], change[2]);
+                for (int[] edge : edges) {
+                    if (edge[0] == change[0] && edge[1] == change[1]) {
+                        edge[2] = change[2];
+                    }
+                }
+                assertEquals(
+                        GraphToolkit.getMaxFlow(buildGraph(edges), 0, 5),
+                        session.getMaxFlow(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testOffHeapGraph() throws Exception {
+        Graph g = new Graph();
+        GraphGenerators.rmat(9, 3000, 11, g);
+
+        try (OffHeapGraph off = OffHeapGraph.of(g)) {
+            assertEquals(g.getSize(), off.numNodes());
+            assertEquals(-1, off.indexOf(-1));
+            for (int v = 0; v < off.numNodes(); v++) {
+                assertEquals(v, off.indexOf(off.getID(v)));
+            }
+
+            assertEquals(GraphToolkit.getWCC(g).getComponentCount(),
+                    GraphToolkit.getWCC(off).getComponentCount());
+            int src = off.getID(0);
+            assertEquals(GraphToolkit.getSingleSourceShortestPath(g, src),
+                    GraphToolkit.getSingleSourceShortestPath(off, src));
+            assertEquals(GraphToolkit.getHarmonicCentrality(g),
+                    GraphToolkit.getHarmonicCentrality(off));
+            assertEquals(GraphToolkit.getClosenessCentrality(g),
+                    GraphToolkit.getClosenessCentrality(off));
+
+            PageRankOptions options = new PageRankOptions()
+                    .setTolerance(1e-10);
+            Map<Integer, Double> onHeap = GraphToolkit.getPageRank(g, options);
+            Map<Integer, Double> offHeap =
+                    GraphToolkit.getPageRank(off, options);
+            for (Map.Entry<Integer, Double> entry : onHeap.entrySet()) {
+                assertEquals(entry.getValue(), offHeap.get(entry.getKey()),
+                        1e-12);
+            }
+        }
+
+        // The builder adds endpoint nodes and sorts every row
+        OffHeapGraph.Builder builder = OffHeapGraph.builder();
+        builder.addNode(7);
+        builder.addEdge(3, 9, 2.0);
+        builder.addEdge(3, 5, 1.0);
+        builder.addEdge(5, 9, 0.5);
+        try (OffHeapGraph off = builder.build()) {
+            builder.close();
+            assertEquals(4, off.numNodes());
+            assertEquals(3, off.numEdges());
+            assertEquals(1, off.indexOf(5));
+            NeighborCursor cursor = off.cursor();
+            cursor.reset(off.indexOf(3));
+            assertTrue(cursor.next());
+            assertEquals(off.indexOf(5), cursor.target());
+            assertEquals(1.0, cursor.weight(), 0.0);
+            assertTrue(cursor.next());
+            assertEquals(off.indexOf(9), cursor.target());
+            assertFalse(cursor.next());
+            assertEquals(1.5, GraphToolkit.getSingleSourceShortestPath(off, 3)
+                    .get(9), 0.0);
+            assertEquals(2, GraphToolkit.getWCC(off).getComponentCount());
+
+            try (OffHeapGraph reverse = off.transpose()) {
+                assertEquals(2, reverse.getOutDegree(reverse.indexOf(9)));
+            }
+        }
+
+        // More distinct IDs than the low 16 bits of a hash can spread
+        try (OffHeapGraph.Builder chain = OffHeapGraph.builder()) {
+            for (int i = 0; i < 300000; i++) {
+                chain.addEdge(7 * i, 7 * (i + 1), 1.0);
+            }
+            try (OffHeapGraph off = chain.build()) {
+                assertEquals(300001, off.numNodes());
+                assertEquals(300000 * 7, off.getID(off.numNodes() - 1));
+                assertEquals(1, GraphToolkit.getWCC(off).getComponentCount());
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedGraph() throws Exception {
+        Graph g = new Graph();
+        GraphGenerators.rmat(9, 3000, 5, g);
+        CompressedGraph compressed = CompressedGraph.of(g);
+        assertTrue(compressed.isLossless());
+        assertTrue(compressed.getEncodedSize() < 4 * compressed.numEdges());
+
+        // Same rows, edge for edge, as the uncompressed storage
+        try (OffHeapGraph off = OffHeapGraph.of(g)) {
+            assertEquals(off.numEdges(), compressed.numEdges());
+            NeighborCursor expected = off.cursor();
+            NeighborCursor actual = compressed.cursor();
+            for (int v = 0; v < off.numNodes(); v++) {
+                assertEquals(off.getID(v), compressed.getID(v));
+                assertEquals(off.getOutDegree(v), compressed.getOutDegree(v));
+                expected.reset(v);
+                actual.reset(v);
+                while (expected.next()) {
+                    assertTrue(actual.next());
+                    assertEquals(expected.target(), actual.target());
+                    assertEquals(expected.weight(), actual.weight(), 0.0);
+                }
+                assertFalse(actual.next());
+            }
+        }
+
+        int src = compressed.getID(0);
+        for (int v = 1; v < compressed.numNodes(); v += 37) {
+            int tgt = compressed.getID(v);
+            assertEquals(GraphToolkit.bfs(g, src, tgt, false).size(),
+                    GraphToolkit.bfs(compressed, src, tgt).size());
+        }
+        assertEquals(Arrays.asList(src),
+                GraphToolkit.bfs(compressed, src, src));
+
+        PageRankOptions options = new PageRankOptions().setTolerance(1e-10);
+        Map<Integer, Double> expected = GraphToolkit.getPageRank(g, options);
+        Map<Integer, Double> actual =
+                GraphToolkit.getPageRank(compressed, options);
+        for (Map.Entry<Integer, Double> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()), 1e-12);
+        }
+
+        // With more than 256 weights, they are rounded to 256 levels
+        Graph chain = new Graph();
+        for (int i = 0; i < 1000; i++) {
+            chain.addEdge(i, i + 1, i / 10.0);
+        }
+        compressed = CompressedGraph.of(chain);
+        assertFalse(compressed.isLossless());
+        double halfStep = 99.9 / 255 / 2;
+        NeighborCursor cursor = compressed.cursor();
+        for (int i = 0; i < 1000; i++) {
+            cursor.reset(compressed.indexOf(i));
+            assertTrue(cursor.next());
+            assertEquals(i + 1, compressed.getID(cursor.target()));
+            assertEquals(i / 10.0, cursor.weight(), halfStep + 1e-9);
+        }
+    }
+
+    @Test
+    public void testReorder() throws Exception {
+        // A grid whose IDs have been shuffled, so they carry no locality
+        final List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 40 * 40; i++) {
+            ids.add(i);
+        }
+        Collections.shuffle(ids, new Random(3));
+        final Graph g = new Graph();
+        final List<int[]> edges = new ArrayList<>();
+        GraphGenerators.grid(40, 40, 1, (src, tgt, weight) -> {
+            g.addEdge(ids.get(src), ids.get(tgt), weight);
+            edges.add(new int[]{ids.get(src), ids.get(tgt)});
+        });
+        long shuffledSize = CompressedGraph.of(g).getEncodedSize();
+        PageRankOptions options = new PageRankOptions().setTolerance(1e-12);
+        Map<Integer, Double> ranks = GraphToolkit.getPageRank(g, options);
+
+        for (NodeOrdering ordering : NodeOrdering.values()) {
+            Relabeling relabeling = GraphToolkit.reorder(g, ordering);
+            Graph relabelled = relabeling.getGraph();
+            assertEquals(g.getSize(), relabelled.getSize());
+            for (int i = 0; i < relabeling.getSize(); i++) {
+                assertEquals(i, relabeling.getNewID(
+                        relabeling.getOriginalID(i)));
+            }
+            for (int[] edge : edges) {
+                assertTrue(relabelled.containsEdge(
+                        relabeling.getNewID(edge[0]),
+                        relabeling.getNewID(edge[1])));
+            }
+
+            Map<Integer, Double> relabelledRanks = relabeling.toOriginal(
+                    GraphToolkit.getPageRank(relabelled, options));
+            for (Map.Entry<Integer, Double> entry : ranks.entrySet()) {
+                assertEquals(entry.getValue(),
+                        relabelledRanks.get(entry.getKey()), 1e-10);
+            }
+
+            // Neighbors get nearby IDs, so the gaps compress better
+            if (ordering != NodeOrdering.DEGREE) {
+                assertTrue(CompressedGraph.of(relabelled).getEncodedSize()
+                        < shuffledSize);
+            }
+        }
+    }
+
+    /**
+     * Builds a Graph from {src, tgt, weight} triples.
+     */
+    private static Graph buildGraph(int[][] edges) {
+        Graph g = new Graph();
+        for (int[] edge : edges) {
+            g.addEdge(edge[0], edge[1], edge[2]);
+        }
+        return g;
+    }
+
     @Test
     public void testPageRank() throws Exception {
         Graph g = DataReader.readGraphData(
@@ -335,6 +836,73 @@ public class GraphToolkitTest {
         }
     }
 
+    @Test
+    public void testBlockPageRank() throws Exception {
+        Graph g = DataReader.readGraphData(
+                "data/TestGraphs/pageRank_4node.txt");
+        Map<Integer, Double> expected = GraphToolkit.getPageRank(g);
+        final List<Double> residuals = new ArrayList<>();
+        PageRankOptions[] variants = {
+                new PageRankOptions(),
+                new PageRankOptions().setGaussSeidel(true).setNumBlocks(1),
+                new PageRankOptions().setExtrapolationPeriod(5)
+                        .setNumBlocks(3)
+                        .setListener(new PageRankListener() {
+                            @Override
+                            public void onIteration(int iteration,
+                                                    double residual,
+                                                    long elapsedNanos,
+                                                    double edgesPerSecond) {
+                                assertEquals(residuals.size() + 1, iteration);
+                                residuals.add(residual);
+                            }
+                        })};
+        for (PageRankOptions options : variants) {
+            Map<Integer, Double> out = GraphToolkit.getPageRank(g, options);
+            for (int i = 1; i <= 4; i++) {
+                assertEquals(expected.get(i), out.get(i), 0.001);
+            }
+        }
+        assertFalse(residuals.isEmpty());
+        assertTrue(residuals.get(residuals.size() - 1) < 1e-10);
+    }
+
+    @Test
+    public void testDynamicPageRank() throws Exception {
+        Graph g = DataReader.readGraphData(
+                "data/TestGraphs/pageRank_4node.txt");
+        DynamicPageRank pr = GraphToolkit.openDynamicPageRank(g);
+        Map<Integer, Double> expected = GraphToolkit.getPageRank(g);
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(expected.get(i), pr.getRank(i), 0.001);
+        }
+        assertTrue(pr.getErrorBound() < 1e-6);
+
+        // Rewire the graph, adding a new node, and compare with a solve
+        // from scratch
+        DynamicPageRank.Batch batch = new DynamicPageRank.Batch()
+                .removeEdge(1, 2).addEdge(3, 2).addEdge(5, 1)
+                .addEdge(2, 5).removeEdge(4, 3).addEdge(4, 5);
+        Map<Integer, Double> updated = pr.applyBatch(batch);
+        Graph rewired = buildGraph(new int[][]{
+                {1, 3, 1}, {1, 4, 1}, {2, 3, 1}, {2, 4, 1}, {3, 1, 1},
+                {4, 1, 1}, {3, 2, 1}, {5, 1, 1}, {2, 5, 1}, {4, 5, 1}});
+        expected = GraphToolkit.getPageRank(rewired);
+        assertEquals(5, updated.size());
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(expected.get(i), updated.get(i), 0.001);
+        }
+        assertTrue(pr.getErrorBound() < 1e-6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDynamicPageRankMissingEdge() throws Exception {
+        Graph g = DataReader.readGraphData(
+                "data/TestGraphs/pageRank_4node.txt");
+        GraphToolkit.openDynamicPageRank(g).applyBatch(
+                new DynamicPageRank.Batch().removeEdge(3, 4));
+    }
+
     @Test
     public void testBellmanFord() {
         Graph g = DataReader.readGraphData(
@@ -354,6 +922,40 @@ public class GraphToolkitTest {
         }
     }
 
+    @Test
+    public void testNegativeCycle() {
+        Graph g = DataReader.readGraphData(
+                "data/TestGraphs/negativeCycle.txt");
+        try {
+            GraphToolkit.getSingleSourceShortestPath(g, 1);
+            fail("negative cycle not detected");
+        } catch (CycleException e) {
+            List<Integer> cycle = e.getCycle();
+            assertEquals(3, cycle.size());
+            assertTrue(cycle.containsAll(Arrays.asList(2, 3, 4)));
+            for (int i = 0; i < cycle.size(); i++) {
+                int next = cycle.get((i + 1) % cycle.size());
+                assertTrue(g.containsEdge(cycle.get(i), next));
+            }
+        }
+    }
+
+    @Test
+    public void testDijkstra() {
+        Graph g = DataReader.readGraphData(
+                "data/TestGraphs/dijkstra.txt");
+        Map<Integer, Double> ans = new HashMap<>();
+        ans.put(1, 0.0);
+        ans.put(2, 7.0);
+        ans.put(3, 9.0);
+        ans.put(4, 20.0);
+        ans.put(5, 20.0);
+        ans.put(6, 11.0);
+        ans.put(7, Double.MAX_VALUE);
+        Map<Integer, Double> result = GraphToolkit.getSingleSourceShortestPath(g, 1);
+        assertEquals(ans, result);
+    }
+
     @Test
     public void testFloydWarshall() {
         Graph g = DataReader.readGraphData(
@@ -389,4 +991,117 @@ public class GraphToolkitTest {
             assertEquals(ans.get(x), result.get(x));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAllPairsMatrix() {
+        Graph g = DataReader.readGraphData(
+                "data/TestGraphs/dijkstra.txt");
+        DistanceMatrix result = GraphToolkit.getAllPairsShortestPath(g);
+        assertEquals(7, result.size());
+        assertEquals(20.0, result.getDistance(1, 5), 0.0);
+        assertEquals(23.0, result.getDistance(7, 5), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, result.getDistance(1, 7), 0.0);
+        assertFalse(result.get(1).containsKey(7));
+        assertEquals(GraphToolkit.getSingleSourceShortestPath(g, 7),
+                result.get(7));
+    }
+
+    @Test
+    public void testJohnson() {
+        Graph g = DataReader.readGraphData(
+                "data/TestGraphs/floydWarshall.txt");
+        final DistanceMatrix expected = GraphToolkit.getAllPairsShortestPath(g);
+        final Set<Integer> sources = new HashSet<>();
+        GraphToolkit.getAllPairsShortestPath(g, new DistanceRowConsumer() {
+            public void accept(int srcID, int[] tgtIDs, double[] dists) {
+                sources.add(srcID);
+                for (int j = 0; j < tgtIDs.length; j++) {
+                    assertEquals(expected.getDistance(srcID, tgtIDs[j]),
+                            dists[j], 1e-9);
+                }
+            }
+        });
+        assertEquals(4, sources.size());
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100000; v++) {
+            h.record(v * 1000);
+        }
+        assertEquals(100000, h.getCount());
+        assertEquals(50000500.0, h.getMean(), 1e-3);
+        assertEquals(100000000, h.getMax());
+        assertEquals(50000000, h.getValueAtPercentile(50), 50000000 / 64);
+        assertEquals(99000000, h.getValueAtPercentile(99), 99000000 / 64);
+        assertEquals(100000000, h.getValueAtPercentile(100));
+
+        Graph g = DataReader.readGraphData("data/TestGraphs/dijkstra.txt");
+        Metrics.reset();
+        Metrics.setEnabled(false);
+        GraphToolkit.topSort(DataReader.readGraphData(
+                "data/TestGraphs/topsort.txt"));
+        assertEquals(0, Metrics.getTimer("graphToolkit.topSort").getCount());
+
+        Metrics.setEnabled(true);
+        try {
+            GraphToolkit.getSingleSourceShortestPath(g, 1);
+            GraphToolkit.getSingleSourceShortestPath(g, 7);
+            Metrics.count("test.counter", 3);
+        } finally {
+            Metrics.setEnabled(false);
+        }
+        assertEquals(2, Metrics.getTimer(
+                "graphToolkit.getSingleSourceShortestPath").getCount());
+        assertEquals(3, Metrics.getCount("test.counter"));
+
+        StringWriter json = new StringWriter();
+        Metrics.export(MetricsDumpExporter.json(json));
+        assertTrue(json.toString().startsWith(
+                "{\"counters\":{\"test.counter\":3},\"timers\":{"));
+        assertTrue(json.toString().contains(
+                "\"graphToolkit.getSingleSourceShortestPath\":{\"count\":2,"));
+        StringWriter text = new StringWriter();
+        Metrics.export(MetricsDumpExporter.text(text));
+        assertTrue(text.toString().contains("test.counter"));
+        Metrics.reset();
+    }
+
+    @Test
+    public void testAlgorithmEvents() throws Exception {
+        Graph g = DataReader.readGraphData("data/TestGraphs/dijkstra.txt");
+        Path file = Files.createTempFile("algorithms", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("engine.Algorithm")
+                    .withThreshold(Duration.ZERO);
+            recording.start();
+            GraphToolkit.getSingleSourceShortestPath(g, 1);
+            GraphToolkit.getPageRank(g, new PageRankOptions()
+                    .setTolerance(1e-6));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertEquals(2, events.size());
+        RecordedEvent sssp = events.get(0);
+        RecordedEvent pageRank = events.get(1);
+        if (!"getSingleSourceShortestPath".equals(sssp.getString(
+                "algorithm"))) {
+            sssp = events.get(1);
+            pageRank = events.get(0);
+        }
+        assertEquals("getSingleSourceShortestPath",
+                sssp.getString("algorithm"));
+        assertEquals(7, sssp.getInt("nodes"));
+        assertTrue(sssp.getLong("edges") > 0);
+        assertEquals(sssp.getLong("edges"), sssp.getLong("edgesTouched"));
+        assertEquals("getPageRank", pageRank.getString("algorithm"));
+        assertTrue(pageRank.getInt("iterations") > 1);
+        assertEquals(pageRank.getInt("iterations") * pageRank.getLong("edges"),
+                pageRank.getLong("edgesTouched"));
+        assertFalse(pageRank.getDuration().isNegative());
+    }
+}
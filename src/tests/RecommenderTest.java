@@ -1,10 +1,30 @@
 package tests;
 
 import engine.DataReader;
+import engine.Evaluator;
 import engine.Graph;
+import engine.MovieLensCatalog;
+import engine.RecommendationServer;
 import engine.Recommender;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -69,4 +89,124 @@ public class RecommenderTest {
         System.out.println("Percentage of recommendations found is: "
                 + found / expected);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEvaluator() throws Exception {
+        Evaluator evaluator = new Evaluator(Evaluator.Similarity.PEARSON,
+                new int[]{50, 10}, 10, 4);
+        List<Evaluator.Result> results = evaluator.evaluate("u1");
+        assertEquals(2, results.size());
+        assertEquals(10, results.get(0).getNumUsers());
+        assertEquals(50, results.get(1).getNumUsers());
+        for (Evaluator.Result result : results) {
+            System.out.println(result);
+            assertTrue(result.getUsersEvaluated() > 400);
+            assertTrue(result.getRMSE() > 0.5 && result.getRMSE() < 1.5);
+            assertTrue(result.getMAE() > 0 && result.getMAE() <= result.getRMSE());
+            assertTrue(result.getPrecision() >= 0 && result.getPrecision() <= 1);
+            assertTrue(result.getRecall() >= 0 && result.getRecall() <= 1);
+            assertTrue(result.getNDCG() >= 0 && result.getNDCG() <= 1);
+            assertTrue(result.getP50Millis() <= result.getP99Millis());
+        }
+    }
+
+    @Test
+    public void testMovieLensCatalog() throws Exception {
+        MovieLensCatalog catalog = MovieLensCatalog.getDefault();
+        assertSame(catalog, MovieLensCatalog.getDefault());
+        assertEquals("2|53|F|other|94043", catalog.getUser(2));
+        assertEquals("1|Toy Story (1995)|01-Jan-1995", catalog.getMovie(1));
+        assertNull(catalog.getMovie(0));
+        assertNull(catalog.getMovie(1683));
+        assertArrayEquals(new String[]{"50|Star Wars (1977)|01-Jan-1977",
+                        "1|Toy Story (1995)|01-Jan-1995"},
+                catalog.getMovies(Arrays.asList(50, 9999, 1)));
+
+        Recommender r = new Recommender(DataReader.readMovieLensData());
+        assertEquals("For user 2|53|F|other|94043 our recommendations are:\n"
+                + "50|Star Wars (1977)|01-Jan-1977\n",
+                r.getMovieLensNames(2, Arrays.asList(50 + 943)));
+    }
+
+    @Test
+    public void testRecommendationServer() throws Exception {
+        Graph g = new Graph();
+        int[][] ratings = {{1, 10, 5}, {1, 11, 4}, {2, 10, 5}, {2, 11, 4},
+                {2, 12, 5}, {3, 10, 1}, {3, 13, 5}};
+        for (int[] rating : ratings) {
+            g.addEdge(rating[0], rating[1], rating[2]);
+        }
+        Recommender r = new Recommender(g);
+        List<Integer> expected = r.collabFilter(1, r.getJaccardScores(1), 1, 5);
+
+        RecommendationServer server = new RecommendationServer(g, 0);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.getPort();
+
+            HttpResponse<String> response = get(client, base
+                    + "/recommend?user=1&metric=jaccard&neighbors=1");
+            assertEquals(200, response.statusCode());
+            assertEquals("{\"user\":1,\"items\":"
+                    + expected.toString().replace(" ", "") + "}",
+                    response.body());
+
+            response = get(client, base + "/similar?count=1&user=1"
+                    + "&metric=jaccard");
+            assertEquals(200, response.statusCode());
+            assertEquals("{\"user\":1,\"similar\":[{\"user\":2,"
+                    + "\"score\":0.3333333333333333}]}", response.body());
+
+            response = get(client, base + "/path?src=3&tgt=13");
+            assertEquals("{\"src\":3,\"tgt\":13,\"path\":[3,13]}",
+                    response.body());
+
+            assertEquals(200, get(client, base + "/pagerank?count=2")
+                    .statusCode());
+            assertEquals(400, get(client, base + "/recommend?user=99")
+                    .statusCode());
+            assertEquals(400, get(client, base + "/recommend?user=x")
+                    .statusCode());
+            // Users 2 and 3 are the only other users
+            assertEquals(400, get(client, base
+                    + "/recommend?user=1&neighbors=3").statusCode());
+            assertEquals(200, get(client, base
+                    + "/recommend?user=1&neighbors=2").statusCode());
+            assertEquals(404, get(client, base + "/nothing").statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HttpResponse<String> get(HttpClient client, String uri)
+            throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testRecommendationEvent() throws Exception {
+        Recommender r = new Recommender(DataReader.readMovieLensData());
+        Path file = Files.createTempFile("recommendations", ".jfr");
+        List<Integer> recommended;
+        try (Recording recording = new Recording()) {
+            recording.enable("engine.Recommendation")
+                    .withThreshold(Duration.ZERO);
+            recording.start();
+            recommended = r.collabFilter(1, r.getPearsonScores(1), 10, 5);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals(1, event.getInt("userID"));
+        assertTrue(event.getInt("neighbors") >= 10);
+        assertTrue(event.getInt("candidates") >= 5);
+        assertEquals(recommended.size(), event.getInt("results"));
+        assertTrue(event.getDuration("similarityScanNanos").toNanos() > 0);
+    }
+}